@@ -1,41 +1,97 @@
 package examples;
 
 import java.sql.*;
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
 import utils.Utils;
-import java.util.ArrayList;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Scanner;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import java.util.stream.Stream;
 
 public class JDBCOperations {
-  private static final String DB_URL = "jdbc:sqlite:todo.db";
+  private static final String DB_FILE = "todo.db";
+  // -Dtodo.storage=memory runs from an in-memory database checkpointed to DB_FILE
+  private static final boolean MEMORY_STORAGE = "memory".equalsIgnoreCase(System.getProperty("todo.storage"));
+  private static final String DB_URL =
+      MEMORY_STORAGE ? TodoMemoryStore.memoryUrl("todo") : "jdbc:sqlite:" + DB_FILE;
+  private static final int CHECKPOINT_SECONDS = Integer.getInteger("todo.checkpoint.seconds", 60);
   private static final Scanner scanner = new Scanner(System.in);
-  private static final Gson gson = new GsonBuilder().setPrettyPrinting().create();
-  private static final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+  // Number of read-only connections kept open next to the single writer
+  private static final int POOL_READERS = Integer.getInteger("todo.pool.readers", 4);
+  private static final TodoDbProfile PROFILE = TodoDbProfile.fromSystemProperty();
+  private static final int STATEMENT_CACHE_SIZE =
+      Integer.getInteger("todo.pool.statementCache", TodoConnectionPool.DEFAULT_STATEMENT_CACHE_SIZE);
+  private static final int CACHE_SIZE = Integer.getInteger("todo.cache.size", TodoRepository.DEFAULT_CACHE_SIZE);
+  // Todos completed more than this many days ago are archived in the background; 0 disables it
+  private static final int ARCHIVE_DAYS = Integer.getInteger("todo.archive.days", 0);
+  private static TodoConnectionPool pool;
+  private static TodoRepository repository;
+  private static TodoReminderScheduler reminders;
+  private static TodoMemoryStore memoryStore;
+  private static TodoArchiver archiver;
 
   static {
     try {
+      pool = new TodoConnectionPool(DB_URL, POOL_READERS, PROFILE, STATEMENT_CACHE_SIZE);
+      Runtime.getRuntime().addShutdownHook(new Thread(JDBCOperations::shutdown, "TodoPoolShutdown"));
+      repository = new TodoRepository(pool, CACHE_SIZE);
+      if (MEMORY_STORAGE) {
+        memoryStore = new TodoMemoryStore(repository, Paths.get(DB_FILE));
+        memoryStore.load();
+      }
       initializeDatabase();
-    } catch (SQLException e) {
+      if (memoryStore != null) {
+        memoryStore.start(Duration.ofSeconds(CHECKPOINT_SECONDS));
+      }
+      if (Boolean.getBoolean("todo.reminders")) {
+        reminders = new TodoReminderScheduler(repository, JDBCOperations::printReminder);
+      }
+      if (ARCHIVE_DAYS > 0) {
+        // Hourly background compaction of completed todos
+        archiver = new TodoArchiver(repository);
+        archiver.start(Duration.ofDays(ARCHIVE_DAYS), TodoArchiver.VacuumMode.INCREMENTAL, Duration.ofHours(1));
+      }
+    } catch (SQLException | IOException e) {
       e.printStackTrace();
     }
   }
 
+  // Stops the background jobs, then writes the final checkpoint in memory mode,
+  // before the pool and its in-memory database go away
+  private static void shutdown() {
+    if (archiver != null) {
+      // Waits for a running batch to commit rather than closing the pool under it
+      archiver.close();
+    }
+    if (reminders != null) {
+      reminders.close();
+    }
+    if (memoryStore != null) {
+      try {
+        memoryStore.close();
+      } catch (SQLException | IOException e) {
+        System.err.println("Error writing final checkpoint: " + e.getMessage());
+      }
+    }
+    pool.close();
+  }
+
   private static void initializeDatabase() throws SQLException {
-    try (Connection conn = DriverManager.getConnection(DB_URL);
-        Statement stmt = conn.createStatement()) {
-
-      String sql = "CREATE TABLE IF NOT EXISTS todos (" +
-          "id INTEGER PRIMARY KEY AUTOINCREMENT," +
-          "title TEXT NOT NULL," +
-          "description TEXT," +
-          "due_date TEXT," +
-          "completed INTEGER DEFAULT 0," +
-          "created_at TEXT DEFAULT CURRENT_TIMESTAMP)";
-      stmt.execute(sql);
+    try (Connection conn = pool.getWriteConnection()) {
+      TodoSchema.create(conn);
+    }
+  }
+
+  private static void printReminder(int id, long dueEpochMillis) {
+    try {
+      repository.findById(id).ifPresent(todo ->
+          System.out.println("\n[Reminder] Todo " + id + " is due: " + todo.getTitle() + " (" + todo.getDueDateText() + ")"));
+    } catch (SQLException e) {
+      System.err.println("Error loading reminder: " + e.getMessage());
     }
   }
 
@@ -43,46 +99,126 @@ public class JDBCOperations {
     private int id;
     private String title;
     private String description;
-    private String dueDate;
+    // Epoch milliseconds, null when the todo has no due date
+    private Long dueDate;
     private boolean completed;
-    private String createdAt;
+    private long createdAt;
 
+    /**
+     * @param dueDate local date-time text as typed by the user, may be null or empty
+     * @throws IllegalArgumentException if dueDate is not a valid date
+     */
     public Todo(String title, String description, String dueDate) {
+      this(title, description, TodoDates.parse(dueDate));
+    }
+
+    public Todo(String title, String description, long dueDate) {
+      this(title, description, Long.valueOf(dueDate));
+    }
+
+    private Todo(String title, String description, Long dueDate) {
+      this(0, title, description, dueDate, false, System.currentTimeMillis());
+    }
+
+    private Todo(int id, String title, String description, Long dueDate, boolean completed, long createdAt) {
+      this.id = id;
       this.title = title;
       this.description = description;
       this.dueDate = dueDate;
-      this.completed = false;
-      this.createdAt = LocalDateTime.now().format(formatter);
+      this.completed = completed;
+      this.createdAt = createdAt;
+    }
+
+    // Rebuilds a stored todo, e.g. from a query row or an export file
+    static Todo of(int id, String title, String description, Long dueDate, boolean completed,
+        long createdAt) {
+      return new Todo(id, title, description, dueDate, completed, createdAt);
+    }
+
+    Todo copy() {
+      return of(id, title, description, dueDate, completed, createdAt);
+    }
+
+    public int getId() {
+      return id;
+    }
+
+    public String getTitle() {
+      return title;
+    }
+
+    public String getDescription() {
+      return description;
+    }
+
+    // Epoch milliseconds or null
+    public Long getDueDate() {
+      return dueDate;
+    }
+
+    public String getDueDateText() {
+      return TodoDates.format(dueDate);
+    }
+
+    public boolean isCompleted() {
+      return completed;
+    }
+
+    public void setCompleted(boolean completed) {
+      this.completed = completed;
+    }
+
+    // Epoch milliseconds
+    public long getCreatedAt() {
+      return createdAt;
+    }
+
+    public String getCreatedAtText() {
+      return TodoDates.format(createdAt);
     }
 
     @Override
     public String toString() {
       return String.format(
           "ID: %d%nTitle: %s%nDescription: %s%nDue Date: %s%nStatus: %s%nCreated At: %s%n",
-          id, title, description, dueDate,
+          id, title, description, getDueDateText(),
           completed ? "Completed" : "Pending",
-          createdAt);
+          getCreatedAtText());
     }
   }
 
   private static void listTodos() {
-    String sql = "SELECT * FROM todos";
-    try (Connection conn = DriverManager.getConnection(DB_URL);
-        Statement stmt = conn.createStatement();
-        ResultSet rs = stmt.executeQuery(sql)) {
+    System.out.println("Filter (all/pending/completed/overdue/week) (press Enter for all):");
+    String status = scanner.nextLine().trim().toLowerCase();
+
+    TodoPageQuery query = new TodoPageQuery();
+    if (status.startsWith("p")) {
+      query = query.withCompleted(false);
+    } else if (status.startsWith("c")) {
+      query = query.withCompleted(true);
+    } else if (status.startsWith("o")) {
+      query = TodoPageQuery.overdue(System.currentTimeMillis());
+    } else if (status.startsWith("w")) {
+      query = TodoPageQuery.dueThisWeek(System.currentTimeMillis());
+    }
 
+    try {
       boolean found = false;
-      while (rs.next()) {
-        found = true;
-        Todo todo = new Todo(
-            rs.getString("title"),
-            rs.getString("description"),
-            rs.getString("due_date"));
-        todo.id = rs.getInt("id");
-        todo.completed = rs.getInt("completed") == 1;
-        todo.createdAt = rs.getString("created_at");
-        System.out.println("----------------------------------------");
-        System.out.println(todo);
+      while (true) {
+        TodoPageQuery.TodoPage page = listPage(query);
+        for (Todo todo : page.getItems()) {
+          found = true;
+          System.out.println("----------------------------------------");
+          System.out.println(todo);
+        }
+        if (!page.hasMore()) {
+          break;
+        }
+        System.out.println("Press Enter for the next page, or 'q' to stop:");
+        if (scanner.nextLine().trim().equalsIgnoreCase("q")) {
+          break;
+        }
+        query = page.nextQuery();
       }
 
       if (!found) {
@@ -93,6 +229,38 @@ public class JDBCOperations {
     }
   }
 
+  /**
+   * Fetches one page using keyset pagination; see TodoPageQuery.
+   */
+  public static TodoPageQuery.TodoPage listPage(TodoPageQuery query) throws SQLException {
+    return repository.findPage(query);
+  }
+
+  private static void searchTodos() {
+    System.out.println("Enter search words:");
+    String text = scanner.nextLine();
+
+    try {
+      List<Todo> results = search(text, TodoSearch.DEFAULT_LIMIT);
+      for (Todo todo : results) {
+        System.out.println("----------------------------------------");
+        System.out.println(todo);
+      }
+      if (results.isEmpty()) {
+        System.out.println("No matching todos found.");
+      }
+    } catch (SQLException e) {
+      System.out.println("Error searching todos: " + e.getMessage());
+    }
+  }
+
+  /**
+   * Full-text search over titles and descriptions, best match first.
+   */
+  public static List<Todo> search(String text, int limit) throws SQLException {
+    return repository.search(text, limit);
+  }
+
   private static void addTodo() {
     System.out.println("Enter todo title:");
     String title = scanner.nextLine();
@@ -100,22 +268,14 @@ public class JDBCOperations {
     System.out.println("Enter todo description:");
     String description = scanner.nextLine();
 
-    System.out.println("Enter due date (YYYY-MM-DD HH:mm:ss):");
+    System.out.println("Enter due date (YYYY-MM-DD [HH:mm[:ss]]) (press Enter for none):");
     String dueDate = scanner.nextLine();
 
-    String sql = "INSERT INTO todos (title, description, due_date) VALUES (?, ?, ?)";
-
-    try (Connection conn = DriverManager.getConnection(DB_URL);
-        PreparedStatement pstmt = conn.prepareStatement(sql)) {
-
-      pstmt.setString(1, title);
-      pstmt.setString(2, description);
-      pstmt.setString(3, dueDate);
-
-      int affectedRows = pstmt.executeUpdate();
-      if (affectedRows > 0) {
-        System.out.println("Todo added successfully!");
-      }
+    try {
+      int id = repository.add(new Todo(title, description, dueDate));
+      System.out.println("Todo added successfully! (ID: " + id + ")");
+    } catch (IllegalArgumentException e) {
+      System.out.println(e.getMessage());
     } catch (SQLException e) {
       System.out.println("Error adding todo: " + e.getMessage());
     }
@@ -125,15 +285,8 @@ public class JDBCOperations {
     System.out.println("Enter todo ID to delete:");
     int id = Integer.parseInt(scanner.nextLine());
 
-    String sql = "DELETE FROM todos WHERE id = ?";
-
-    try (Connection conn = DriverManager.getConnection(DB_URL);
-        PreparedStatement pstmt = conn.prepareStatement(sql)) {
-
-      pstmt.setInt(1, id);
-
-      int affectedRows = pstmt.executeUpdate();
-      if (affectedRows > 0) {
+    try {
+      if (repository.delete(id)) {
         System.out.println("Todo deleted successfully!");
       } else {
         System.out.println("No todo found with ID: " + id);
@@ -148,69 +301,55 @@ public class JDBCOperations {
     int id = Integer.parseInt(scanner.nextLine());
 
     // First check if todo exists
-    String checkSql = "SELECT * FROM todos WHERE id = ?";
-    try (Connection conn = DriverManager.getConnection(DB_URL);
-        PreparedStatement checkStmt = conn.prepareStatement(checkSql)) {
-
-      checkStmt.setInt(1, id);
-      ResultSet rs = checkStmt.executeQuery();
-
-      if (!rs.next()) {
+    try {
+      if (repository.findById(id).isEmpty()) {
         System.out.println("No todo found with ID: " + id);
         return;
       }
+    } catch (SQLException e) {
+      System.out.println("Error updating todo: " + e.getMessage());
+      return;
+    }
 
-      System.out.println("Enter new title (press Enter to skip):");
-      String title = scanner.nextLine();
-
-      System.out.println("Enter new description (press Enter to skip):");
-      String description = scanner.nextLine();
-
-      System.out.println("Enter new due date (YYYY-MM-DD HH:mm:ss) (press Enter to skip):");
-      String dueDate = scanner.nextLine();
+    System.out.println("Enter new title (press Enter to skip):");
+    String title = scanner.nextLine();
 
-      System.out.println("Mark as completed? (yes/no) (press Enter to skip):");
-      String completed = scanner.nextLine();
+    System.out.println("Enter new description (press Enter to skip):");
+    String description = scanner.nextLine();
 
-      StringBuilder sql = new StringBuilder("UPDATE todos SET ");
-      List<String> updates = new ArrayList<>();
-      List<Object> values = new ArrayList<>();
+    System.out.println("Enter new due date (YYYY-MM-DD [HH:mm[:ss]]) (press Enter to skip):");
+    String dueDate = scanner.nextLine();
 
-      if (!title.isEmpty()) {
-        updates.add("title = ?");
-        values.add(title);
-      }
-      if (!description.isEmpty()) {
-        updates.add("description = ?");
-        values.add(description);
-      }
-      if (!dueDate.isEmpty()) {
-        updates.add("due_date = ?");
-        values.add(dueDate);
-      }
-      if (!completed.isEmpty()) {
-        updates.add("completed = ?");
-        values.add(completed.toLowerCase().startsWith("y") ? 1 : 0);
-      }
+    System.out.println("Mark as completed? (yes/no) (press Enter to skip):");
+    String completed = scanner.nextLine();
 
-      if (updates.isEmpty()) {
-        System.out.println("No updates provided.");
+    TodoUpdate update = new TodoUpdate();
+    if (!title.isEmpty()) {
+      update = update.withTitle(title);
+    }
+    if (!description.isEmpty()) {
+      update = update.withDescription(description);
+    }
+    if (!dueDate.isEmpty()) {
+      try {
+        update = update.withDueDate(dueDate);
+      } catch (IllegalArgumentException e) {
+        System.out.println(e.getMessage());
         return;
       }
+    }
+    if (!completed.isEmpty()) {
+      update = update.withCompleted(completed.toLowerCase().startsWith("y"));
+    }
 
-      sql.append(String.join(", ", updates));
-      sql.append(" WHERE id = ?");
-
-      try (PreparedStatement pstmt = conn.prepareStatement(sql.toString())) {
-        for (int i = 0; i < values.size(); i++) {
-          pstmt.setObject(i + 1, values.get(i));
-        }
-        pstmt.setInt(values.size() + 1, id);
+    if (update.isEmpty()) {
+      System.out.println("No updates provided.");
+      return;
+    }
 
-        int affectedRows = pstmt.executeUpdate();
-        if (affectedRows > 0) {
-          System.out.println("Todo updated successfully!");
-        }
+    try {
+      if (repository.update(id, update)) {
+        System.out.println("Todo updated successfully!");
       }
     } catch (SQLException e) {
       System.out.println("Error updating todo: " + e.getMessage());
@@ -218,33 +357,144 @@ public class JDBCOperations {
   }
 
   private static void exportToJson() {
-    List<Todo> todos = new ArrayList<>();
-    String sql = "SELECT * FROM todos";
-
-    try (Connection conn = DriverManager.getConnection(DB_URL);
-        Statement stmt = conn.createStatement();
-        ResultSet rs = stmt.executeQuery(sql)) {
-
-      while (rs.next()) {
-        Todo todo = new Todo(
-            rs.getString("title"),
-            rs.getString("description"),
-            rs.getString("due_date"));
-        todo.id = rs.getInt("id");
-        todo.completed = rs.getInt("completed") == 1;
-        todo.createdAt = rs.getString("created_at");
-        todos.add(todo);
+    System.out.println("Enter output file (press Enter to print to console):");
+    String file = scanner.nextLine().trim();
+
+    System.out.println("Pretty print? (yes/no) (press Enter for yes):");
+    String prettyAnswer = scanner.nextLine().trim().toLowerCase();
+    boolean pretty = prettyAnswer.isEmpty() || prettyAnswer.startsWith("y");
+
+    try {
+      if (file.isEmpty()) {
+        System.out.println("\nExported JSON:");
+        exportJson(System.out, pretty);
+        System.out.println();
+      } else {
+        long rows = exportJson(Paths.get(file), pretty);
+        System.out.println("Exported " + rows + " todos to " + file);
       }
+    } catch (SQLException | IOException e) {
+      System.out.println("Error exporting to JSON: " + e.getMessage());
+    }
+  }
+
+  /**
+   * Streams all todos as a JSON array without loading the table into memory.
+   * The stream is flushed but not closed.
+   */
+  public static long exportJson(OutputStream out, boolean pretty) throws SQLException, IOException {
+    return repository.exportJson(out, pretty);
+  }
 
-      String json = gson.toJson(todos);
-      System.out.println("\nExported JSON:");
-      System.out.println(json);
+  public static long exportJson(Path file, boolean pretty) throws SQLException, IOException {
+    return repository.exportJson(file, pretty);
+  }
+
+  /**
+   * Incremental export: only todos changed after afterSeq, see TodoChangeFeed.
+   *
+   * @return the sequence number to pass as afterSeq on the next call
+   */
+  public static long exportChangesJson(OutputStream out, long afterSeq, boolean pretty)
+      throws SQLException, IOException {
+    return repository.exportChangesJson(out, afterSeq, pretty);
+  }
+
+  private static void archiveTodos() {
+    System.out.println("Archive todos completed more than how many days ago? (press Enter for 30):");
+    String days = scanner.nextLine().trim();
+
+    System.out.println("Vacuum afterwards? (none/incremental/full) (press Enter for none):");
+    String mode = scanner.nextLine().trim().toUpperCase();
 
+    try {
+      TodoArchiver.ArchiveResult result = archiveCompleted(
+          Duration.ofDays(days.isEmpty() ? 30 : Long.parseLong(days)),
+          mode.isEmpty() ? TodoArchiver.VacuumMode.NONE : TodoArchiver.VacuumMode.valueOf(mode));
+      System.out.println(result);
     } catch (SQLException e) {
-      System.out.println("Error exporting to JSON: " + e.getMessage());
+      System.out.println("Error archiving todos: " + e.getMessage());
+    }
+  }
+
+  /**
+   * Moves todos completed longer ago than the threshold to todos_archive.
+   */
+  public static TodoArchiver.ArchiveResult archiveCompleted(Duration olderThan, TodoArchiver.VacuumMode vacuum)
+      throws SQLException {
+    return new TodoArchiver(repository).archive(olderThan, vacuum);
+  }
+
+  private static void backupOrRestore() {
+    System.out.println("Backup or restore? (backup/restore) (press Enter for backup):");
+    boolean restore = scanner.nextLine().trim().toLowerCase().startsWith("r");
+
+    System.out.println(restore ? "Enter backup file to restore from:" : "Enter backup file (press Enter for todo-backup.db):");
+    String file = scanner.nextLine().trim();
+
+    try {
+      if (restore) {
+        new TodoBackup(repository).restore(Paths.get(file));
+        System.out.println("Database restored from " + file);
+      } else {
+        System.out.println(backup(Paths.get(file.isEmpty() ? "todo-backup.db" : file)));
+      }
+    } catch (SQLException | IOException e) {
+      System.out.println("Error during " + (restore ? "restore" : "backup") + ": " + e.getMessage());
+    }
+  }
+
+  /**
+   * Writes a point-in-time copy of the database while writers keep running,
+   * using the throttled online backup API.
+   */
+  public static TodoBackup.BackupResult backup(Path target) throws SQLException, IOException {
+    return new TodoBackup(repository).backup(target, TodoBackup.DEFAULT_PAGES_PER_STEP, 1);
+  }
+
+  /**
+   * Inserts todos in batched transactions, committing every batchSize rows.
+   */
+  public static TodoBulkImporter.ImportResult bulkImport(Iterator<? extends Todo> todos, int batchSize)
+      throws SQLException {
+    return repository.bulkImport(todos, batchSize);
+  }
+
+  public static TodoBulkImporter.ImportResult bulkImport(Stream<? extends Todo> todos) throws SQLException {
+    try (Stream<? extends Todo> s = todos) {
+      return repository.bulkImport(s.iterator(), TodoBulkImporter.DEFAULT_BATCH_SIZE);
+    }
+  }
+
+  /**
+   * Shared repository over todo.db for programmatic use, e.g. together with
+   * a TodoWriteBehindQueue.
+   */
+  public static TodoRepository getRepository() {
+    return repository;
+  }
+
+  private static void showPoolStats() {
+    System.out.println("Database profile: " + pool.getProfile());
+    if (memoryStore != null) {
+      System.out.println("Storage: in memory, " + memoryStore.getCheckpointCount() + " checkpoints to "
+          + memoryStore.getFile() + " every " + CHECKPOINT_SECONDS + " s");
+    }
+    System.out.println("Connection pool statistics:");
+    System.out.println(pool.getStats());
+    System.out.println("Todo cache statistics:");
+    System.out.println(repository.getCacheStats());
+    if (reminders != null) {
+      System.out.println("Reminders: " + reminders.getScheduledCount() + " scheduled, " +
+          reminders.getFiredCount() + " fired, next due " +
+          reminders.getNextDue().map(Object::toString).orElse("-"));
     }
   }
 
+  public static TodoConnectionPool.PoolStats getPoolStats() {
+    return pool.getStats();
+  }
+
   public static void demonstrateJDBC() {
     Utils.printLine("SQLite Todo Application");
 
@@ -254,8 +504,12 @@ public class JDBCOperations {
       System.out.println("3. Delete Todo");
       System.out.println("4. Update Todo");
       System.out.println("5. Export to JSON");
-      System.out.println("6. Return to Main Menu");
-      System.out.print("\nSelect an option (1-6): ");
+      System.out.println("6. Search Todos");
+      System.out.println("7. Pool and Cache Statistics");
+      System.out.println("8. Archive Completed Todos");
+      System.out.println("9. Backup or Restore Database");
+      System.out.println("10. Return to Main Menu");
+      System.out.print("\nSelect an option (1-10): ");
 
       String choice = scanner.nextLine();
       System.out.println();
@@ -278,6 +532,18 @@ public class JDBCOperations {
             exportToJson();
             break;
           case "6":
+            searchTodos();
+            break;
+          case "7":
+            showPoolStats();
+            break;
+          case "8":
+            archiveTodos();
+            break;
+          case "9":
+            backupOrRestore();
+            break;
+          case "10":
             return;
           default:
             System.out.println("Invalid choice. Please try again.");
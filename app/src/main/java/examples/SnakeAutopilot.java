@@ -0,0 +1,338 @@
+package examples;
+
+import utils.Utils;
+import java.util.Arrays;
+import examples.SnakeEngine.Direction;
+
+/**
+ * Pathfinding bot for SnakeEngine games.
+ *
+ * It looks for the shortest path to the food with a breadth-first search
+ * and takes it only if, after eating, the head could still reach the
+ * tail, so the snake never walls itself in for a single piece of food. When
+ * there is no such path it follows a Hamiltonian cycle of the board (or,
+ * if that move is unsafe, any move that keeps the tail reachable) until the
+ * food becomes safe to take.
+ *
+ * A safe path is kept and followed until the food is eaten: the food stays
+ * put and the body moves exactly as planned, so it stays safe and the
+ * search runs about once per food rather than once per tick.
+ *
+ * The searches know that the body moves: a body segment blocks a cell only
+ * until the tail has passed it, so paths may run through cells the tail will
+ * have left by the time the head gets there.
+ *
+ * All queues, marks and paths are int arrays allocated once per board size
+ * and reused, and visited marks are stamped with a search counter instead of
+ * being cleared, so a decision allocates nothing and a new plan costs two
+ * searches of the board. An instance is not thread-safe; give each thread
+ * its own (e.g. SnakeAutopilot::new as a SnakeBatchRunner supplier).
+ *
+ * Usage: java -cp app/build/libs/app.jar examples.SnakeAutopilot [games] [width] [height] [maxTicks]
+ * reports decisions per second and the average score.
+ */
+public final class SnakeAutopilot implements SnakeStrategy {
+  private static final Direction[] DIRECTIONS = SnakeEngine.directions();
+
+  private int width = -1;
+  private int height = -1;
+  private int cellCount;
+  // neighbors[cell * 4 + d] is the cell one move away in DIRECTIONS[d]
+  private int[] neighbors;
+  // Direction index of the move from each cell to the next one on the Hamiltonian cycle
+  private int[] cycleMove;
+  // Search state: a cell is visited in the current search if mark[cell] == search
+  private int[] mark;
+  private int search;
+  private int[] queue;
+  private int[] parent;
+  private int[] time;
+  // Body cells block until tick blockedUntil[cell] if bodyMark[cell] == bodyStamp
+  private int[] bodyMark;
+  private int bodyStamp;
+  private int[] blockedUntil;
+  // The body as it would be after a planned move, head first
+  private int[] virtual;
+  private int virtualLength;
+  // Cells of the last path found, from the food back to the first step
+  private int[] path;
+  private int pathLength;
+  // Safe path being followed, same layout as path; plan[planStep] is the next move
+  private int[] plan;
+  private int planStep = -1;
+  // Head, food and tick the next planned move expects, to notice a reset or an outside turn
+  private int planHead;
+  private int planFood;
+  private long planTick;
+
+  @Override
+  public Direction next(SnakeEngine engine) {
+    if (engine.getWidth() != width || engine.getHeight() != height) {
+      allocate(engine.getWidth(), engine.getHeight());
+    }
+    int head = engine.getHeadCell();
+    int food = engine.getFoodCell();
+    if (planStep >= 0 && head == planHead && food == planFood && engine.getTicks() == planTick) {
+      // Nothing changed but the moves we planned, so the rest of the path is still safe
+      return followPlan();
+    }
+    planStep = -1;
+    if (food >= 0) {
+      markBody(engine);
+      if (findPath(head, food)) {
+        // Saved first: the safety check searches again and overwrites the path
+        System.arraycopy(path, 0, plan, 0, pathLength);
+        int steps = pathLength;
+        if (eatingIsSafe(engine)) {
+          planStep = steps - 1;
+          planHead = head;
+          planFood = food;
+          planTick = engine.getTicks();
+          return followPlan();
+        }
+      }
+    }
+    // Follow the cycle, else anything that keeps the tail in reach, else anything free
+    int cycleNext = neighbors[head * 4 + cycleMove[head]];
+    if (moveIsSafe(engine, cycleNext)) {
+      return DIRECTIONS[cycleMove[head]];
+    }
+    Direction fallback = null;
+    for (int d = 0; d < 4; d++) {
+      int next = neighbors[head * 4 + d];
+      if (next == cycleNext || engine.isOccupied(next)) {
+        continue;
+      }
+      if (moveIsSafe(engine, next)) {
+        return DIRECTIONS[d];
+      }
+      if (fallback == null) {
+        fallback = DIRECTIONS[d];
+      }
+    }
+    return fallback;
+  }
+
+  private Direction followPlan() {
+    int next = plan[planStep--];
+    Direction direction = directionTo(planHead, next);
+    planHead = next;
+    planTick++;
+    return direction;
+  }
+
+  private void allocate(int width, int height) {
+    this.width = width;
+    this.height = height;
+    cellCount = width * height;
+    neighbors = new int[cellCount * 4];
+    SnakeEngine layout = new SnakeEngine(width, height, 0);
+    for (int cell = 0; cell < cellCount; cell++) {
+      for (int d = 0; d < 4; d++) {
+        neighbors[cell * 4 + d] = layout.neighbor(cell, DIRECTIONS[d]);
+      }
+    }
+    cycleMove = buildCycle(width, height);
+    mark = new int[cellCount];
+    search = 0;
+    queue = new int[cellCount];
+    parent = new int[cellCount];
+    time = new int[cellCount];
+    bodyMark = new int[cellCount];
+    bodyStamp = 0;
+    blockedUntil = new int[cellCount];
+    virtual = new int[cellCount];
+    path = new int[cellCount];
+    plan = new int[cellCount];
+    planStep = -1;
+  }
+
+  /**
+   * Hamiltonian cycle of the wrapping board: serpentine rows over columns
+   * 1..width-1, then back up column 0. The last row ends next to column 0,
+   * directly when height is even and across the wrapped edge when it is
+   * odd, so this works for every board size.
+   */
+  static int[] buildCycle(int width, int height) {
+    int up = indexOf(Direction.UP);
+    int down = indexOf(Direction.DOWN);
+    int left = indexOf(Direction.LEFT);
+    int right = indexOf(Direction.RIGHT);
+    int[] moves = new int[width * height];
+    for (int y = 0; y < height; y++) {
+      boolean rightward = y % 2 == 0;
+      for (int x = 1; x < width; x++) {
+        boolean rowEnd = rightward ? x == width - 1 : x == 1;
+        int move = rightward ? right : left;
+        if (rowEnd) {
+          move = y < height - 1 ? down : rightward ? right : left;
+        }
+        moves[y * width + x] = move;
+      }
+      // Column 0 leads back up to the first row
+      moves[y * width] = y == 0 ? right : up;
+    }
+    return moves;
+  }
+
+  private static int indexOf(Direction direction) {
+    for (int d = 0; d < DIRECTIONS.length; d++) {
+      if (DIRECTIONS[d] == direction) {
+        return d;
+      }
+    }
+    throw new IllegalArgumentException(String.valueOf(direction));
+  }
+
+  private Direction directionTo(int from, int to) {
+    for (int d = 0; d < 4; d++) {
+      if (neighbors[from * 4 + d] == to) {
+        return DIRECTIONS[d];
+      }
+    }
+    throw new IllegalStateException("Cell " + to + " is not next to " + from);
+  }
+
+  // Marks the current body: segment i from the head blocks moves 1 .. length - i
+  private void markBody(SnakeEngine engine) {
+    int length = engine.getLength();
+    nextBodyStamp();
+    for (int i = 0; i < length; i++) {
+      int cell = engine.getSegment(i);
+      bodyMark[cell] = bodyStamp;
+      blockedUntil[cell] = length - i;
+    }
+  }
+
+  // Same for the virtual body
+  private void markVirtualBody() {
+    nextBodyStamp();
+    for (int i = 0; i < virtualLength; i++) {
+      bodyMark[virtual[i]] = bodyStamp;
+      blockedUntil[virtual[i]] = virtualLength - i;
+    }
+  }
+
+  private void nextBodyStamp() {
+    if (++bodyStamp == 0) {
+      // Counter wrapped: stale marks could match again
+      Arrays.fill(bodyMark, 0);
+      bodyStamp = 1;
+    }
+  }
+
+  /**
+   * Breadth-first search from start to target around the marked body. On
+   * success path[0..pathLength) holds the path from target back to the first
+   * step, without start.
+   */
+  private boolean findPath(int start, int target) {
+    if (++search == 0) {
+      // Counter wrapped: stale marks could match again
+      Arrays.fill(mark, 0);
+      search = 1;
+    }
+    int headIndex = 0;
+    int tailIndex = 0;
+    queue[tailIndex++] = start;
+    mark[start] = search;
+    time[start] = 0;
+    while (headIndex < tailIndex) {
+      int cell = queue[headIndex++];
+      int arrival = time[cell] + 1;
+      for (int d = 0; d < 4; d++) {
+        int next = neighbors[cell * 4 + d];
+        if (mark[next] == search) {
+          continue;
+        }
+        if (bodyMark[next] == bodyStamp && arrival <= blockedUntil[next]) {
+          // Still part of the body when the head would get there
+          continue;
+        }
+        mark[next] = search;
+        time[next] = arrival;
+        parent[next] = cell;
+        if (next == target) {
+          pathLength = 0;
+          for (int c = target; c != start; c = parent[c]) {
+            path[pathLength++] = c;
+          }
+          return true;
+        }
+        queue[tailIndex++] = next;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Builds the body as it would be after walking the current path and
+   * eating, and checks that its head can still reach its tail.
+   */
+  private boolean eatingIsSafe(SnakeEngine engine) {
+    int length = engine.getLength() + 1;
+    if (length == cellCount) {
+      // Eating the last food wins
+      return true;
+    }
+    // Newest cells first: the path from the food back, then the oldest part of the body
+    virtualLength = 0;
+    for (int i = 0; i < pathLength && virtualLength < length; i++) {
+      virtual[virtualLength++] = path[i];
+    }
+    for (int i = 0; virtualLength < length; i++) {
+      virtual[virtualLength++] = engine.getSegment(i);
+    }
+    return tailReachable();
+  }
+
+  // Whether the tail is still in reach after moving the head to next without eating
+  private boolean moveIsSafe(SnakeEngine engine, int next) {
+    if (engine.isOccupied(next) || next == engine.getFoodCell()) {
+      // Food is only taken through eatingIsSafe
+      return false;
+    }
+    int length = engine.getLength();
+    virtual[0] = next;
+    for (int i = 1; i < length; i++) {
+      virtual[i] = engine.getSegment(i - 1);
+    }
+    virtualLength = length;
+    return tailReachable();
+  }
+
+  private boolean tailReachable() {
+    markVirtualBody();
+    return findPath(virtual[0], virtual[virtualLength - 1]);
+  }
+
+  public static void main(String[] args) {
+    int games = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+    int width = args.length > 1 ? Integer.parseInt(args[1]) : 30;
+    int height = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+    long maxTicks = args.length > 3 ? Long.parseLong(args[3]) : 100L * width * height;
+    Utils.printLine("Snake autopilot: " + games + " games on " + width + "x" + height);
+
+    SnakeRunner runner = new SnakeRunner(width, height, new SnakeAutopilot(), maxTicks);
+    long decisions = 0;
+    long score = 0;
+    int best = 0;
+    int wins = 0;
+    long start = System.nanoTime();
+    for (int i = 0; i < games; i++) {
+      SnakeRunner.GameResult result = runner.play(i + 1);
+      // One decision per tick
+      decisions += result.getTicks();
+      score += result.getScore();
+      best = Math.max(best, result.getScore());
+      if (result.getOutcome() == SnakeEngine.Outcome.WON) {
+        wins++;
+      }
+    }
+    double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+    System.out.printf("%,d decisions in %.2f s (%,.0f decisions/s, %.2f us each)%n",
+        decisions, seconds, decisions / seconds, seconds * 1_000_000 / decisions);
+    System.out.printf("average score %.1f of %d, best %d, %d wins%n",
+        (double) score / games, width * height - SnakeEngine.START_LENGTH, best, wins);
+  }
+}
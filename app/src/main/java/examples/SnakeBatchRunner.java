@@ -0,0 +1,242 @@
+package examples;
+
+import utils.Utils;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+/**
+ * Plays many independent seeded Snake games in parallel and aggregates the
+ * score distribution.
+ *
+ * Game i always uses seed baseSeed + i. The games are split into chunks;
+ * each chunk runs on a fixed thread pool with its own engine, its own
+ * strategy instance and its own score histogram, and the histograms are
+ * merged once all chunks are done. Nothing mutable is shared between
+ * threads, and the result for a given seed range is the same for any
+ * number of threads.
+ *
+ * Usage: java -cp app/build/libs/app.jar examples.SnakeBatchRunner [games] [width] [height]
+ * runs the greedy strategy with 1, 2, 4 ... threads up to all cores and
+ * reports games/s and the speedup over one thread.
+ */
+public class SnakeBatchRunner {
+  // Chunks per thread, so threads that finish early can take more work
+  private static final int CHUNKS_PER_THREAD = 8;
+
+  private final int width;
+  private final int height;
+  private final Supplier<SnakeStrategy> strategies;
+  private final long maxTicks;
+
+  /**
+   * @param strategies creates one strategy per chunk, so strategies may keep state
+   */
+  public SnakeBatchRunner(int width, int height, Supplier<SnakeStrategy> strategies, long maxTicks) {
+    this.width = width;
+    this.height = height;
+    this.strategies = strategies;
+    this.maxTicks = maxTicks;
+  }
+
+  /**
+   * Plays games seeded baseSeed .. baseSeed + games - 1 on the given number of threads.
+   */
+  public BatchResult run(int games, long baseSeed, int threads) throws InterruptedException {
+    if (games < 1 || threads < 1) {
+      throw new IllegalArgumentException("games and threads must be positive: " + games + ", " + threads);
+    }
+    int chunks = Math.min(games, threads * CHUNKS_PER_THREAD);
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    long start = System.nanoTime();
+    try {
+      List<Future<ScoreStats>> futures = new ArrayList<>(chunks);
+      for (int c = 0; c < chunks; c++) {
+        // Chunk c plays games [from, to)
+        int from = (int) ((long) games * c / chunks);
+        int to = (int) ((long) games * (c + 1) / chunks);
+        futures.add(executor.submit(() -> playChunk(baseSeed + from, to - from)));
+      }
+      ScoreStats total = new ScoreStats(width * height);
+      for (Future<ScoreStats> future : futures) {
+        total.merge(future.get());
+      }
+      return new BatchResult(total, threads, System.nanoTime() - start);
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("Simulation failed", e.getCause());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private ScoreStats playChunk(long firstSeed, int games) {
+    SnakeRunner runner = new SnakeRunner(width, height, strategies.get(), maxTicks);
+    ScoreStats stats = new ScoreStats(width * height);
+    for (int i = 0; i < games; i++) {
+      stats.record(runner.play(firstSeed + i));
+    }
+    return stats;
+  }
+
+  public static void main(String[] args) throws InterruptedException {
+    int games = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+    int width = args.length > 1 ? Integer.parseInt(args[1]) : 30;
+    int height = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+    int cores = Runtime.getRuntime().availableProcessors();
+    Utils.printLine("Batch Snake: " + games + " greedy games on " + width + "x" + height + ", up to "
+        + cores + " threads");
+
+    SnakeBatchRunner batch = new SnakeBatchRunner(width, height, SnakeStrategy::greedy, 100L * width * height);
+    // Warm up the JIT before timing the single-threaded baseline
+    batch.run(Math.min(games, 10_000), 1, cores);
+
+    double baseline = 0;
+    BatchResult last = null;
+    System.out.printf("%8s %14s %9s %11s%n", "threads", "games/s", "speedup", "efficiency");
+    for (int threads = 1; ; threads = Math.min(threads * 2, cores)) {
+      last = batch.run(games, 1, threads);
+      if (threads == 1) {
+        baseline = last.getGamesPerSecond();
+      }
+      double speedup = last.getGamesPerSecond() / baseline;
+      System.out.printf("%8d %14.0f %8.2fx %10.0f%%%n", threads, last.getGamesPerSecond(), speedup,
+          speedup / threads * 100);
+      if (threads == cores) {
+        break;
+      }
+    }
+    System.out.println(last.getStats());
+  }
+
+  /**
+   * Score histogram of a set of games. Not thread-safe; each chunk fills
+   * its own and they are merged afterwards.
+   */
+  public static class ScoreStats {
+    // counts[s] = games that ended with score s
+    private final long[] counts;
+    private long games;
+    private long ticks;
+    private long wins;
+
+    ScoreStats(int cells) {
+      counts = new long[cells + 1];
+    }
+
+    void record(SnakeRunner.GameResult result) {
+      counts[result.getScore()]++;
+      games++;
+      ticks += result.getTicks();
+      if (result.getOutcome() == SnakeEngine.Outcome.WON) {
+        wins++;
+      }
+    }
+
+    void merge(ScoreStats other) {
+      for (int i = 0; i < counts.length; i++) {
+        counts[i] += other.counts[i];
+      }
+      games += other.games;
+      ticks += other.ticks;
+      wins += other.wins;
+    }
+
+    public long getGames() {
+      return games;
+    }
+
+    public long getTicks() {
+      return ticks;
+    }
+
+    public long getWins() {
+      return wins;
+    }
+
+    public double getMean() {
+      long sum = 0;
+      for (int s = 0; s < counts.length; s++) {
+        sum += s * counts[s];
+      }
+      return games == 0 ? 0 : (double) sum / games;
+    }
+
+    public double getStandardDeviation() {
+      double mean = getMean();
+      double squares = 0;
+      for (int s = 0; s < counts.length; s++) {
+        squares += counts[s] * (s - mean) * (s - mean);
+      }
+      return games == 0 ? 0 : Math.sqrt(squares / games);
+    }
+
+    // Smallest score that at least the given fraction of games did not exceed
+    public int getPercentile(double fraction) {
+      long rank = Math.max(1, (long) Math.ceil(fraction * games));
+      long seen = 0;
+      for (int s = 0; s < counts.length; s++) {
+        seen += counts[s];
+        if (seen >= rank) {
+          return s;
+        }
+      }
+      return counts.length - 1;
+    }
+
+    public int getMin() {
+      return getPercentile(0);
+    }
+
+    public int getMax() {
+      for (int s = counts.length - 1; s > 0; s--) {
+        if (counts[s] > 0) {
+          return s;
+        }
+      }
+      return 0;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("%d games, %d ticks: score mean %.1f (sd %.1f), min %d, p50 %d, p90 %d, p99 %d, max %d, %d wins",
+          games, ticks, getMean(), getStandardDeviation(), getMin(), getPercentile(0.5), getPercentile(0.9),
+          getPercentile(0.99), getMax(), wins);
+    }
+  }
+
+  /**
+   * Scores of one batch plus how long it took.
+   */
+  public static class BatchResult {
+    private final ScoreStats stats;
+    private final int threads;
+    private final long elapsedNanos;
+
+    BatchResult(ScoreStats stats, int threads, long elapsedNanos) {
+      this.stats = stats;
+      this.threads = threads;
+      this.elapsedNanos = elapsedNanos;
+    }
+
+    public ScoreStats getStats() {
+      return stats;
+    }
+
+    public int getThreads() {
+      return threads;
+    }
+
+    public double getGamesPerSecond() {
+      return stats.getGames() / (elapsedNanos / 1_000_000_000.0);
+    }
+
+    @Override
+    public String toString() {
+      return String.format("%d threads, %.0f games/s; %s", threads, getGamesPerSecond(), stats);
+    }
+  }
+}
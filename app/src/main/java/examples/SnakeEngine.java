@@ -0,0 +1,437 @@
+package examples;
+
+import java.util.Arrays;
+
+/**
+ * Headless, deterministic Snake simulation.
+ *
+ * The board wraps around at the edges and the game ends when the head runs
+ * into the body; moving onto the current tail cell counts as a collision,
+ * because the tail only moves after the head. Cells are numbered
+ * y * width + x. The body is a ring buffer of cell indexes and occupancy is
+ * kept in a CellSet, so a tick is a handful of array operations and
+ * allocates nothing.
+ *
+ * Food placement uses a seeded SplitMix64 generator that is part of the
+ * state, so the same seed and the same moves always give the same game, and
+ * a Snapshot can be resumed exactly.
+ */
+public final class SnakeEngine {
+  public static final int START_LENGTH = 4;
+
+  public enum Direction {
+    UP(0, -1), DOWN(0, 1), LEFT(-1, 0), RIGHT(1, 0);
+
+    private final int dx;
+    private final int dy;
+
+    Direction(int dx, int dy) {
+      this.dx = dx;
+      this.dy = dy;
+    }
+
+    public Direction opposite() {
+      switch (this) {
+        case UP:
+          return DOWN;
+        case DOWN:
+          return UP;
+        case LEFT:
+          return RIGHT;
+        default:
+          return LEFT;
+      }
+    }
+  }
+
+  /**
+   * What a tick did. DIED and WON end the game.
+   */
+  public enum Outcome {
+    MOVED, ATE, DIED, WON
+  }
+
+  private static final Direction[] DIRECTIONS = Direction.values();
+
+  private final int width;
+  private final int height;
+  private final int cellCount;
+  // Ring buffer of cell indexes; body[head] is the head, the tail is length - 1 slots behind it
+  private final int[] body;
+  private final CellSet cells;
+  private int head;
+  private int length;
+  // -1 once the snake fills the board
+  private int food;
+  private Direction direction;
+  private boolean over;
+  private long rng;
+  private int score;
+  private long ticks;
+  // Cell the tail left in the last tick, -1 if the snake grew or did not move
+  private int vacated;
+
+  public SnakeEngine(int width, int height, long seed) {
+    if (width < START_LENGTH || height < 1 || (long) width * height <= START_LENGTH) {
+      throw new IllegalArgumentException("Board too small: " + width + "x" + height);
+    }
+    this.width = width;
+    this.height = height;
+    this.cellCount = width * height;
+    this.body = new int[cellCount];
+    this.cells = new CellSet(cellCount);
+    reset(seed);
+  }
+
+  /**
+   * Resumes a game from a snapshot.
+   */
+  public SnakeEngine(Snapshot snapshot) {
+    this(snapshot.width, snapshot.height, 0);
+    cells.clear();
+    head = cellCount - 1;
+    length = 0;
+    // Stored head first, pushed tail first
+    for (int i = snapshot.body.length - 1; i >= 0; i--) {
+      pushHead(snapshot.body[i]);
+    }
+    cells.restoreFreeOrder(snapshot.free);
+    food = snapshot.food;
+    direction = snapshot.direction;
+    over = snapshot.over;
+    rng = snapshot.rng;
+    score = snapshot.score;
+    ticks = snapshot.ticks;
+    vacated = -1;
+  }
+
+  /**
+   * Starts a new game: START_LENGTH segments in the middle of the board, moving right.
+   */
+  public void reset(long seed) {
+    cells.clear();
+    head = cellCount - 1;
+    length = 0;
+    rng = seed;
+    int startX = width / 2;
+    int startY = height / 2;
+    for (int i = START_LENGTH - 1; i >= 0; i--) {
+      // On narrow boards the start segments wrap like the snake itself
+      pushHead(cellOf(Math.floorMod(startX - i, width), startY));
+    }
+    direction = Direction.RIGHT;
+    over = false;
+    score = 0;
+    ticks = 0;
+    vacated = -1;
+    placeFood();
+  }
+
+  /**
+   * Advances one tick. The snake turns to the given direction first, unless
+   * it is null or would reverse the snake onto itself.
+   */
+  public Outcome step(Direction turn) {
+    if (over) {
+      throw new IllegalStateException("Game is over");
+    }
+    if (turn != null && turn != direction.opposite()) {
+      direction = turn;
+    }
+    ticks++;
+    vacated = -1;
+    int next = neighbor(body[head], direction);
+    if (cells.isOccupied(next)) {
+      over = true;
+      return Outcome.DIED;
+    }
+    pushHead(next);
+    if (next != food) {
+      removeTail();
+      return Outcome.MOVED;
+    }
+    score++;
+    placeFood();
+    if (food < 0) {
+      over = true;
+      return Outcome.WON;
+    }
+    return Outcome.ATE;
+  }
+
+  private void pushHead(int cell) {
+    head = head + 1 == cellCount ? 0 : head + 1;
+    body[head] = cell;
+    length++;
+    cells.occupy(cell);
+  }
+
+  private void removeTail() {
+    int tail = tailIndex();
+    length--;
+    vacated = body[tail];
+    cells.release(vacated);
+  }
+
+  private int tailIndex() {
+    int tail = head - length + 1;
+    return tail < 0 ? tail + cellCount : tail;
+  }
+
+  private void placeFood() {
+    int free = cells.freeCount();
+    food = free == 0 ? -1 : cells.freeCell(nextInt(free));
+  }
+
+  // SplitMix64, kept inline so the generator state is a single long in the snapshot
+  private int nextInt(int bound) {
+    rng += 0x9E3779B97F4A7C15L;
+    long z = rng;
+    z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+    z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+    z = z ^ (z >>> 31);
+    return (int) (((z >>> 32) * bound) >>> 32);
+  }
+
+  public int cellOf(int x, int y) {
+    return y * width + x;
+  }
+
+  // Cell reached from cell by one move in the given direction, wrapping at the edges
+  public int neighbor(int cell, Direction d) {
+    int x = cell % width + d.dx;
+    int y = cell / width + d.dy;
+    if (x < 0) {
+      x = width - 1;
+    } else if (x >= width) {
+      x = 0;
+    }
+    if (y < 0) {
+      y = height - 1;
+    } else if (y >= height) {
+      y = 0;
+    }
+    return y * width + x;
+  }
+
+  public static Direction[] directions() {
+    return DIRECTIONS;
+  }
+
+  public int getWidth() {
+    return width;
+  }
+
+  public int getHeight() {
+    return height;
+  }
+
+  public int getCellCount() {
+    return cellCount;
+  }
+
+  public int getHeadCell() {
+    return body[head];
+  }
+
+  public int getTailCell() {
+    return body[tailIndex()];
+  }
+
+  // i-th segment counted from the head, 0 <= i < getLength()
+  public int getSegment(int i) {
+    int index = head - i;
+    return body[index < 0 ? index + cellCount : index];
+  }
+
+  public int getLength() {
+    return length;
+  }
+
+  public int getFoodCell() {
+    return food;
+  }
+
+  public Direction getDirection() {
+    return direction;
+  }
+
+  public boolean isOccupied(int cell) {
+    return cells.isOccupied(cell);
+  }
+
+  public int getVacatedCell() {
+    return vacated;
+  }
+
+  public boolean isOver() {
+    return over;
+  }
+
+  // Food eaten so far
+  public int getScore() {
+    return score;
+  }
+
+  public long getTicks() {
+    return ticks;
+  }
+
+  public Snapshot snapshot() {
+    int[] cellsHeadFirst = new int[length];
+    for (int i = 0; i < length; i++) {
+      cellsHeadFirst[i] = getSegment(i);
+    }
+    return new Snapshot(width, height, cellsHeadFirst, cells.freeCells(), food, direction, over, rng, score,
+        ticks);
+  }
+
+  /**
+   * Complete game state in flat arrays: the body as cell indexes from head
+   * to tail, the free cells in the order food placement indexes them, and
+   * the generator state, so a restored engine continues exactly as the
+   * original would have. Body and free cells together hold one int per
+   * board cell.
+   */
+  public static final class Snapshot {
+    private final int width;
+    private final int height;
+    private final int[] body;
+    private final int[] free;
+    private final int food;
+    private final Direction direction;
+    private final boolean over;
+    private final long rng;
+    private final int score;
+    private final long ticks;
+
+    Snapshot(int width, int height, int[] body, int[] free, int food, Direction direction, boolean over,
+        long rng, int score, long ticks) {
+      this.width = width;
+      this.height = height;
+      this.body = body;
+      this.free = free;
+      this.food = food;
+      this.direction = direction;
+      this.over = over;
+      this.rng = rng;
+      this.score = score;
+      this.ticks = ticks;
+    }
+
+    public int[] getBody() {
+      return body.clone();
+    }
+
+    public int getFood() {
+      return food;
+    }
+
+    public int getScore() {
+      return score;
+    }
+
+    public long getTicks() {
+      return ticks;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof Snapshot)) {
+        return false;
+      }
+      Snapshot s = (Snapshot) o;
+      return width == s.width && height == s.height && food == s.food && direction == s.direction
+          && over == s.over && rng == s.rng && score == s.score && ticks == s.ticks
+          && Arrays.equals(body, s.body) && Arrays.equals(free, s.free);
+    }
+
+    @Override
+    public int hashCode() {
+      return Arrays.hashCode(body) * 31 + Long.hashCode(rng);
+    }
+
+    @Override
+    public String toString() {
+      return String.format("%dx%d, length %d, score %d, tick %d, heading %s%s",
+          width, height, body.length, score, ticks, direction, over ? ", over" : "");
+    }
+  }
+
+  /**
+   * Set of occupied board cells with an index of the free ones.
+   * free[0..freeCount) lists every free cell and position[cell] is where the
+   * cell sits in that list (-1 if occupied), so occupy, release, lookup and
+   * picking the n-th free cell are all O(1) no matter how full the board is.
+   */
+  static final class CellSet {
+    private final int[] free;
+    private final int[] position;
+    private int freeCount;
+
+    CellSet(int size) {
+      free = new int[size];
+      position = new int[size];
+      clear();
+    }
+
+    void clear() {
+      for (int i = 0; i < free.length; i++) {
+        free[i] = i;
+        position[i] = i;
+      }
+      freeCount = free.length;
+    }
+
+    boolean isOccupied(int cell) {
+      return position[cell] < 0;
+    }
+
+    void occupy(int cell) {
+      int pos = position[cell];
+      if (pos < 0) {
+        return;
+      }
+      // Move the last free cell into the hole
+      int last = free[--freeCount];
+      free[pos] = last;
+      position[last] = pos;
+      position[cell] = -1;
+    }
+
+    void release(int cell) {
+      if (position[cell] >= 0) {
+        return;
+      }
+      free[freeCount] = cell;
+      position[cell] = freeCount++;
+    }
+
+    int freeCount() {
+      return freeCount;
+    }
+
+    // n-th free cell, 0 <= n < freeCount()
+    int freeCell(int n) {
+      return free[n];
+    }
+
+    int[] freeCells() {
+      return Arrays.copyOf(free, freeCount);
+    }
+
+    // Reorders the free list to match a saved one holding the same cells
+    void restoreFreeOrder(int[] order) {
+      if (order.length != freeCount) {
+        throw new IllegalArgumentException("Snapshot has " + order.length + " free cells, board has " + freeCount);
+      }
+      for (int i = 0; i < order.length; i++) {
+        if (position[order[i]] < 0) {
+          throw new IllegalArgumentException("Snapshot lists occupied cell " + order[i] + " as free");
+        }
+        free[i] = order[i];
+        position[order[i]] = i;
+      }
+    }
+  }
+}
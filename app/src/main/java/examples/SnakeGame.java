@@ -3,37 +3,54 @@ package examples;
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.*;
-import java.util.LinkedList;
+import java.awt.image.BufferedImage;
+import examples.SnakeEngine.Direction;
 
 public class SnakeGame {
   public static void launch() {
     SwingUtilities.invokeLater(() -> {
       JFrame frame = new JFrame("Simple Snake Game");
       frame.setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
-      frame.add(new GamePanel());
+      // -Dsnake.mode=loop runs the game on its own thread instead of a Swing Timer
+      Component game = "loop".equals(System.getProperty("snake.mode")) ? new SnakeGameLoop() : new GamePanel();
+      frame.add(game);
       frame.pack();
       frame.setLocationRelativeTo(null);
       frame.setVisible(true);
+      game.requestFocusInWindow();
     });
   }
 
-  // Simple game panel
+  // Simple game panel: a Swing view over a SnakeEngine
   static class GamePanel extends JPanel implements ActionListener, KeyListener {
-    private static final int TILE_SIZE = 20;
-    private static final int GRID_WIDTH = 30;
-    private static final int GRID_HEIGHT = 20;
+    private static final long serialVersionUID = 1L;
+
+    // Board size can be raised for profiling, e.g. -Dsnake.width=400 -Dsnake.height=300 -Dsnake.tile=2
+    private static final int TILE_SIZE = Integer.getInteger("snake.tile", 20);
+    private static final int GRID_WIDTH = Integer.getInteger("snake.width", 30);
+    private static final int GRID_HEIGHT = Integer.getInteger("snake.height", 20);
     private static final int PANEL_WIDTH = TILE_SIZE * GRID_WIDTH;
     private static final int PANEL_HEIGHT = TILE_SIZE * GRID_HEIGHT;
-
-    private final LinkedList<Point> snake = new LinkedList<>();
-    private Point food;
-    private Direction dir = Direction.RIGHT;
+    // -Dsnake.autopilot=true starts with the bot playing; P toggles it during a game
+    private static final boolean AUTOPILOT = Boolean.getBoolean("snake.autopilot");
+    private static final Color GRID_COLOR = new Color(30, 30, 30);
+    private static final Color OVERLAY_COLOR = new Color(255, 255, 255, 200);
+    private static final String GAME_OVER_MESSAGE = "Game Over - Press R to restart";
+
+    private final SnakeEngine engine;
+    // Turn requested by the keyboard since the last tick, null to keep going
+    private Direction turn;
+    private final SnakeAutopilot pilot = new SnakeAutopilot();
+    private boolean autopilot = AUTOPILOT;
     private Timer timer;
-    private boolean running = true;
-
-    enum Direction {
-      UP, DOWN, LEFT, RIGHT
-    }
+    private Font overlayFont;
+    // Grid pre-rendered once; painting copies the part under the clip
+    private Image background;
+    // Cells changed by the current tick, painted on their own instead of the whole board
+    private final int[] dirty = new int[4];
+    private int dirtyCount;
+    private boolean repaintAll = true;
+    private final Rectangle clip = new Rectangle();
 
     GamePanel() {
       setPreferredSize(new Dimension(PANEL_WIDTH, PANEL_HEIGHT));
@@ -41,134 +58,152 @@ public class SnakeGame {
       setFocusable(true);
       addKeyListener(this);
 
-      initGame();
+      engine = new SnakeEngine(GRID_WIDTH, GRID_HEIGHT, nextSeed());
       timer = new Timer(120, this);
       timer.start();
     }
 
-    private void initGame() {
-      snake.clear();
-      // Start with 4 segments
-      int startX = GRID_WIDTH / 2;
-      int startY = GRID_HEIGHT / 2;
-      for (int i = 0; i < 4; i++) {
-        snake.add(new Point(startX - i, startY));
-      }
-      placeFood();
-      dir = Direction.RIGHT;
-      running = true;
+    // -Dsnake.seed=N replays the same food positions every game
+    private static long nextSeed() {
+      return Long.getLong("snake.seed", System.nanoTime());
     }
 
-    private void placeFood() {
-      int x, y;
-      do {
-        x = (int) (Math.random() * GRID_WIDTH);
-        y = (int) (Math.random() * GRID_HEIGHT);
-        food = new Point(x, y);
-      } while (snake.contains(food));
+    private void initGame() {
+      engine.reset(nextSeed());
+      turn = null;
+      // The whole board changed
+      dirtyCount = 0;
+      repaintAll = true;
     }
 
-    @Override
-    protected void paintComponent(Graphics g) {
-      super.paintComponent(g);
-      Graphics2D g2 = (Graphics2D) g.create();
+    private void markDirty(int cell) {
+      if (cell < 0) {
+        return;
+      }
+      if (dirtyCount < dirty.length) {
+        dirty[dirtyCount++] = cell;
+      } else {
+        repaintAll = true;
+      }
+    }
 
+    private Image renderBackground() {
+      GraphicsConfiguration gc = getGraphicsConfiguration();
+      // A compatible image can be cached in video memory by Java2D
+      Image image = gc != null ? gc.createCompatibleImage(PANEL_WIDTH, PANEL_HEIGHT)
+          : new BufferedImage(PANEL_WIDTH, PANEL_HEIGHT, BufferedImage.TYPE_INT_RGB);
+      Graphics g = image.getGraphics();
+      g.setColor(Color.BLACK);
+      g.fillRect(0, 0, PANEL_WIDTH, PANEL_HEIGHT);
       // Draw grid (optional subtle lines)
-      g2.setColor(new Color(30, 30, 30));
+      g.setColor(GRID_COLOR);
       for (int i = 0; i <= GRID_WIDTH; i++) {
-        g2.drawLine(i * TILE_SIZE, 0, i * TILE_SIZE, PANEL_HEIGHT);
+        g.drawLine(i * TILE_SIZE, 0, i * TILE_SIZE, PANEL_HEIGHT);
       }
       for (int i = 0; i <= GRID_HEIGHT; i++) {
-        g2.drawLine(0, i * TILE_SIZE, PANEL_WIDTH, i * TILE_SIZE);
+        g.drawLine(0, i * TILE_SIZE, PANEL_WIDTH, i * TILE_SIZE);
       }
+      g.dispose();
+      return image;
+    }
 
-      // Draw food
-      g2.setColor(Color.RED);
-      g2.fillRect(food.x * TILE_SIZE, food.y * TILE_SIZE, TILE_SIZE, TILE_SIZE);
-
-      // Draw snake
-      g2.setColor(Color.GREEN);
-      boolean head = true;
-      for (Point p : snake) {
-        if (head) {
-          g2.setColor(Color.YELLOW);
-          g2.fillRect(p.x * TILE_SIZE, p.y * TILE_SIZE, TILE_SIZE, TILE_SIZE);
-          head = false;
-          g2.setColor(Color.GREEN);
-        } else {
-          g2.fillRect(p.x * TILE_SIZE, p.y * TILE_SIZE, TILE_SIZE, TILE_SIZE);
+    private void fillCell(Graphics g, int cell) {
+      g.fillRect(cell % GRID_WIDTH * TILE_SIZE, cell / GRID_WIDTH * TILE_SIZE, TILE_SIZE, TILE_SIZE);
+    }
+
+    // Paints only the cells under the clip, so a tick costs as much as the cells it changed
+    @Override
+    protected void paintComponent(Graphics g) {
+      super.paintComponent(g);
+      if (background == null) {
+        background = renderBackground();
+      }
+      g.drawImage(background, 0, 0, null);
+
+      // Left as the whole board if there is no clip
+      clip.setBounds(0, 0, PANEL_WIDTH, PANEL_HEIGHT);
+      g.getClipBounds(clip);
+      int firstX = Math.max(0, clip.x / TILE_SIZE);
+      int lastX = Math.min(GRID_WIDTH - 1, (clip.x + clip.width - 1) / TILE_SIZE);
+      int firstY = Math.max(0, clip.y / TILE_SIZE);
+      int lastY = Math.min(GRID_HEIGHT - 1, (clip.y + clip.height - 1) / TILE_SIZE);
+      int headCell = engine.getHeadCell();
+      int food = engine.getFoodCell();
+      for (int y = firstY; y <= lastY; y++) {
+        for (int x = firstX; x <= lastX; x++) {
+          int cell = engine.cellOf(x, y);
+          if (engine.isOccupied(cell)) {
+            g.setColor(cell == headCell ? Color.YELLOW : Color.GREEN);
+          } else if (cell == food) {
+            g.setColor(Color.RED);
+          } else {
+            continue;
+          }
+          fillCell(g, cell);
         }
       }
 
-      if (!running) {
-        g2.setColor(new Color(255, 255, 255, 200));
-        g2.setFont(g2.getFont().deriveFont(Font.BOLD, 24f));
-        FontMetrics fm = g2.getFontMetrics();
-        String msg = "Game Over - Press R to restart";
-        int tw = fm.stringWidth(msg);
-        g2.drawString(msg, (PANEL_WIDTH - tw) / 2, PANEL_HEIGHT / 2);
+      if (engine.isOver()) {
+        if (overlayFont == null) {
+          overlayFont = g.getFont().deriveFont(Font.BOLD, 24f);
+        }
+        g.setColor(OVERLAY_COLOR);
+        g.setFont(overlayFont);
+        FontMetrics fm = g.getFontMetrics();
+        int tw = fm.stringWidth(GAME_OVER_MESSAGE);
+        g.drawString(GAME_OVER_MESSAGE, (PANEL_WIDTH - tw) / 2, PANEL_HEIGHT / 2);
       }
-
-      g2.dispose();
     }
 
     @Override
     public void actionPerformed(ActionEvent e) {
-      if (running) {
+      if (!engine.isOver()) {
         step();
       }
-      repaint();
+      if (repaintAll || engine.isOver()) {
+        repaintAll = false;
+        dirtyCount = 0;
+        repaint();
+        return;
+      }
+      // Painted right away, one cell at a time: repaint() would merge head and tail into one
+      // bounding rectangle that can span the whole board
+      for (int i = 0; i < dirtyCount; i++) {
+        int cell = dirty[i];
+        paintImmediately(cell % GRID_WIDTH * TILE_SIZE, cell / GRID_WIDTH * TILE_SIZE, TILE_SIZE, TILE_SIZE);
+      }
+      dirtyCount = 0;
     }
 
     private void step() {
-      Point head = snake.getFirst();
-      Point next = new Point(head.x, head.y);
-      switch (dir) {
-        case UP:
-          next.y -= 1;
+      int oldHead = engine.getHeadCell();
+      SnakeEngine.Outcome outcome = engine.step(autopilot ? pilot.next(engine) : turn);
+      turn = null;
+      switch (outcome) {
+        case DIED:
+          // stop updates
+          timer.stop();
+          // play game over sound (optional)
+          SoundEffects.playGameOver();
           break;
-        case DOWN:
-          next.y += 1;
+        case WON:
+          // Board full: nothing left to eat
+          timer.stop();
+          SoundEffects.playEat();
           break;
-        case LEFT:
-          next.x -= 1;
+        case ATE:
+          SoundEffects.playEat();
+          markDirty(oldHead);
+          markDirty(engine.getHeadCell());
+          markDirty(engine.getFoodCell());
           break;
-        case RIGHT:
-          next.x += 1;
+        default:
+          // The old head turns into a body segment
+          markDirty(oldHead);
+          markDirty(engine.getHeadCell());
+          markDirty(engine.getVacatedCell());
           break;
       }
-
-      // Wrap-around behavior
-      if (next.x < 0)
-        next.x = GRID_WIDTH - 1;
-      if (next.x >= GRID_WIDTH)
-        next.x = 0;
-      if (next.y < 0)
-        next.y = GRID_HEIGHT - 1;
-      if (next.y >= GRID_HEIGHT)
-        next.y = 0;
-
-      // Check collision with self
-      if (snake.contains(next)) {
-        running = false;
-        // stop updates
-        if (timer != null) {
-          timer.stop();
-        }
-        // play game over sound (optional)
-        SoundEffects.playGameOver();
-        return;
-      }
-
-      snake.addFirst(next);
-
-      // Check food
-      if (next.equals(food)) {
-        placeFood(); // grow
-        SoundEffects.playEat();
-      } else {
-        snake.removeLast(); // move
-      }
     }
 
     @Override
@@ -178,7 +213,7 @@ public class SnakeGame {
     @Override
     public void keyPressed(KeyEvent e) {
       int kc = e.getKeyCode();
-      if (!running) {
+      if (engine.isOver()) {
         if (kc == KeyEvent.VK_R) {
           initGame();
           // ensure timer runs again after game over
@@ -188,18 +223,20 @@ public class SnakeGame {
         }
         return;
       }
+      if (kc == KeyEvent.VK_P) {
+        autopilot = !autopilot;
+        turn = null;
+        return;
+      }
+      // The engine ignores turns that would reverse the snake
       if (kc == KeyEvent.VK_UP || kc == KeyEvent.VK_W) {
-        if (dir != Direction.DOWN)
-          dir = Direction.UP;
+        turn = Direction.UP;
       } else if (kc == KeyEvent.VK_DOWN || kc == KeyEvent.VK_S) {
-        if (dir != Direction.UP)
-          dir = Direction.DOWN;
+        turn = Direction.DOWN;
       } else if (kc == KeyEvent.VK_LEFT || kc == KeyEvent.VK_A) {
-        if (dir != Direction.RIGHT)
-          dir = Direction.LEFT;
+        turn = Direction.LEFT;
       } else if (kc == KeyEvent.VK_RIGHT || kc == KeyEvent.VK_D) {
-        if (dir != Direction.LEFT)
-          dir = Direction.RIGHT;
+        turn = Direction.RIGHT;
       }
     }
 
@@ -0,0 +1,387 @@
+package examples;
+
+import java.awt.*;
+import java.awt.event.KeyEvent;
+import java.awt.event.KeyListener;
+import java.awt.image.BufferStrategy;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import examples.SnakeEngine.Direction;
+
+/**
+ * Snake driven by its own game loop instead of a Swing Timer, selected with
+ * -Dsnake.mode=loop.
+ *
+ * A dedicated thread owns the engine. It runs ticks on a fixed schedule
+ * (catching up if it falls behind, dropping ticks if it falls far behind)
+ * and renders with a BufferStrategy at the display's refresh rate, drawing
+ * the head and tail part of the way between their last two cells so the
+ * snake glides between ticks. A busy EDT therefore no longer delays ticks.
+ *
+ * Keys are handed to the loop through a queue. Turns pressed between two
+ * ticks are applied on consecutive ticks instead of the last one
+ * overwriting the others, so a quick up-left is not lost.
+ *
+ * An overlay shows frames per second, frame interval, render time and tick
+ * jitter (how late each tick ran) over the last second.
+ */
+class SnakeGameLoop extends Canvas implements Runnable, KeyListener {
+  private static final long serialVersionUID = 1L;
+
+  private static final int TILE_SIZE = Integer.getInteger("snake.tile", 20);
+  private static final int GRID_WIDTH = Integer.getInteger("snake.width", 30);
+  private static final int GRID_HEIGHT = Integer.getInteger("snake.height", 20);
+  private static final int PANEL_WIDTH = TILE_SIZE * GRID_WIDTH;
+  private static final int PANEL_HEIGHT = TILE_SIZE * GRID_HEIGHT;
+  private static final long TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(120);
+  // Further behind than this and the missed ticks are dropped rather than run in a burst
+  private static final int MAX_CATCH_UP_TICKS = 5;
+  private static final Color GRID_COLOR = new Color(30, 30, 30);
+  private static final Color OVERLAY_COLOR = new Color(255, 255, 255, 200);
+  private static final String GAME_OVER_MESSAGE = "Game Over - Press R to restart";
+
+  private final SnakeEngine engine;
+  private final SnakeAutopilot pilot = new SnakeAutopilot();
+  // Key codes from the EDT; everything below is touched by the loop thread only
+  private final BlockingQueue<Integer> keys = new ArrayBlockingQueue<>(16);
+  private final Direction[] turns = new Direction[3];
+  private int turnCount;
+  private boolean autopilot = Boolean.getBoolean("snake.autopilot");
+  // Scheduled time of the next tick
+  private long nextTick;
+  // Whether the last tick moved the snake, so the head and tail can be interpolated
+  private boolean moved;
+  private long droppedTicks;
+  private Image background;
+  private Font overlayFont;
+  private Font messageFont;
+  private final Stat frameInterval = new Stat();
+  private final Stat renderTime = new Stat();
+  private final Stat tickJitter = new Stat();
+  private String overlay = "";
+  private volatile boolean running;
+  private Thread loop;
+
+  SnakeGameLoop() {
+    setPreferredSize(new Dimension(PANEL_WIDTH, PANEL_HEIGHT));
+    setBackground(Color.BLACK);
+    // Painted by the loop, not by AWT
+    setIgnoreRepaint(true);
+    setFocusable(true);
+    addKeyListener(this);
+    engine = new SnakeEngine(GRID_WIDTH, GRID_HEIGHT, nextSeed());
+  }
+
+  // -Dsnake.seed=N replays the same food positions every game
+  private static long nextSeed() {
+    return Long.getLong("snake.seed", System.nanoTime());
+  }
+
+  @Override
+  public void addNotify() {
+    super.addNotify();
+    createBufferStrategy(2);
+    running = true;
+    loop = new Thread(this, "SnakeLoop");
+    loop.setDaemon(true);
+    loop.start();
+  }
+
+  @Override
+  public void removeNotify() {
+    // Stop drawing before the peer and its buffers go away
+    running = false;
+    loop.interrupt();
+    try {
+      loop.join(1000);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    super.removeNotify();
+  }
+
+  @Override
+  public void run() {
+    BufferStrategy strategy = getBufferStrategy();
+    long frameNanos = frameNanos();
+    long now = System.nanoTime();
+    nextTick = now + TICK_NANOS;
+    long nextFrame = now;
+    long lastFrame = now;
+    long windowStart = now;
+    try {
+      while (running) {
+        now = System.nanoTime();
+        runDueTicks(now);
+        if (now >= nextFrame) {
+          frameInterval.add(now - lastFrame);
+          lastFrame = now;
+          render(strategy, now);
+          renderTime.add(System.nanoTime() - now);
+          nextFrame += frameNanos;
+          if (nextFrame <= now) {
+            nextFrame = now + frameNanos;
+          }
+        }
+        if (now - windowStart >= 1_000_000_000L) {
+          updateOverlay(now - windowStart);
+          windowStart = now;
+        }
+        // Sleep until the next frame or tick, waking early for keys
+        long wake = engine.isOver() ? nextFrame : Math.min(nextFrame, nextTick);
+        Integer key = keys.poll(wake - System.nanoTime(), TimeUnit.NANOSECONDS);
+        while (key != null) {
+          handleKey(key);
+          key = keys.poll();
+        }
+      }
+    } catch (InterruptedException e) {
+      // Canvas removed
+    } catch (IllegalStateException e) {
+      // Buffers disposed while drawing; only expected while shutting down
+      if (running) {
+        throw e;
+      }
+    }
+  }
+
+  private long frameNanos() {
+    int hz = DisplayMode.REFRESH_RATE_UNKNOWN;
+    GraphicsConfiguration gc = getGraphicsConfiguration();
+    if (gc != null) {
+      hz = gc.getDevice().getDisplayMode().getRefreshRate();
+    }
+    return 1_000_000_000L / (hz > 0 ? hz : 60);
+  }
+
+  private void runDueTicks(long now) {
+    if (engine.isOver()) {
+      // Nothing to catch up on after a restart
+      nextTick = now + TICK_NANOS;
+      return;
+    }
+    int ticks = 0;
+    while (now >= nextTick && !engine.isOver()) {
+      tickJitter.add(now - nextTick);
+      tick();
+      nextTick += TICK_NANOS;
+      if (++ticks == MAX_CATCH_UP_TICKS && now >= nextTick) {
+        long behind = (now - nextTick) / TICK_NANOS + 1;
+        droppedTicks += behind;
+        nextTick += behind * TICK_NANOS;
+      }
+    }
+  }
+
+  private void tick() {
+    Direction turn = null;
+    if (autopilot) {
+      turn = pilot.next(engine);
+    } else if (turnCount > 0) {
+      turn = turns[0];
+      turnCount--;
+      System.arraycopy(turns, 1, turns, 0, turnCount);
+    }
+    SnakeEngine.Outcome outcome = engine.step(turn);
+    moved = outcome == SnakeEngine.Outcome.MOVED || outcome == SnakeEngine.Outcome.ATE;
+    if (outcome == SnakeEngine.Outcome.DIED) {
+      SoundEffects.playGameOver();
+    } else if (outcome != SnakeEngine.Outcome.MOVED) {
+      SoundEffects.playEat();
+    }
+  }
+
+  private void handleKey(int kc) {
+    if (kc == KeyEvent.VK_P) {
+      autopilot = !autopilot;
+      turnCount = 0;
+      return;
+    }
+    if (engine.isOver()) {
+      if (kc == KeyEvent.VK_R) {
+        engine.reset(nextSeed());
+        turnCount = 0;
+        moved = false;
+        nextTick = System.nanoTime() + TICK_NANOS;
+      }
+      return;
+    }
+    Direction turn = directionFor(kc);
+    if (turn == null) {
+      return;
+    }
+    // Compared with the last queued turn: repeats and reversals would be no-ops
+    Direction last = turnCount > 0 ? turns[turnCount - 1] : engine.getDirection();
+    if (turn != last && turn != last.opposite() && turnCount < turns.length) {
+      turns[turnCount++] = turn;
+    }
+  }
+
+  private static Direction directionFor(int kc) {
+    if (kc == KeyEvent.VK_UP || kc == KeyEvent.VK_W) {
+      return Direction.UP;
+    } else if (kc == KeyEvent.VK_DOWN || kc == KeyEvent.VK_S) {
+      return Direction.DOWN;
+    } else if (kc == KeyEvent.VK_LEFT || kc == KeyEvent.VK_A) {
+      return Direction.LEFT;
+    } else if (kc == KeyEvent.VK_RIGHT || kc == KeyEvent.VK_D) {
+      return Direction.RIGHT;
+    }
+    return null;
+  }
+
+  private void render(BufferStrategy strategy, long now) {
+    // Fraction of the current tick that has passed
+    float alpha = moved ? Math.min(1f, (now - (nextTick - TICK_NANOS)) / (float) TICK_NANOS) : 1f;
+    do {
+      do {
+        Graphics g = strategy.getDrawGraphics();
+        try {
+          draw(g, alpha);
+        } finally {
+          g.dispose();
+        }
+      } while (strategy.contentsRestored());
+      strategy.show();
+    } while (strategy.contentsLost());
+    Toolkit.getDefaultToolkit().sync();
+  }
+
+  private void draw(Graphics g, float alpha) {
+    if (background == null) {
+      background = renderBackground();
+    }
+    g.drawImage(background, 0, 0, null);
+
+    int food = engine.getFoodCell();
+    if (food >= 0) {
+      g.setColor(Color.RED);
+      fillCell(g, food);
+    }
+    g.setColor(Color.GREEN);
+    // Mid-tick after a move that did not grow the snake, the tail cell is drawn by its slide below
+    boolean tailSlides = alpha < 1f && engine.getVacatedCell() >= 0;
+    int bodyEnd = tailSlides ? engine.getLength() - 1 : engine.getLength();
+    for (int i = 1; i < bodyEnd; i++) {
+      fillCell(g, engine.getSegment(i));
+    }
+    if (alpha < 1f) {
+      // The tail leaves the cell it vacated, the head enters its new cell
+      if (tailSlides) {
+        slideCell(g, engine.getVacatedCell(), engine.getTailCell(), alpha);
+      }
+      g.setColor(Color.YELLOW);
+      slideCell(g, engine.getSegment(1), engine.getHeadCell(), alpha);
+    } else {
+      g.setColor(Color.YELLOW);
+      fillCell(g, engine.getHeadCell());
+    }
+
+    if (overlayFont == null) {
+      overlayFont = g.getFont().deriveFont(Font.PLAIN, 12f);
+      messageFont = g.getFont().deriveFont(Font.BOLD, 24f);
+    }
+    g.setColor(OVERLAY_COLOR);
+    g.setFont(overlayFont);
+    g.drawString(overlay, 6, 14);
+    if (engine.isOver()) {
+      g.setFont(messageFont);
+      FontMetrics fm = g.getFontMetrics();
+      int tw = fm.stringWidth(GAME_OVER_MESSAGE);
+      g.drawString(GAME_OVER_MESSAGE, (PANEL_WIDTH - tw) / 2, PANEL_HEIGHT / 2);
+    }
+  }
+
+  private Image renderBackground() {
+    GraphicsConfiguration gc = getGraphicsConfiguration();
+    Image image = gc != null ? gc.createCompatibleImage(PANEL_WIDTH, PANEL_HEIGHT)
+        : new BufferedImage(PANEL_WIDTH, PANEL_HEIGHT, BufferedImage.TYPE_INT_RGB);
+    Graphics g = image.getGraphics();
+    g.setColor(Color.BLACK);
+    g.fillRect(0, 0, PANEL_WIDTH, PANEL_HEIGHT);
+    g.setColor(GRID_COLOR);
+    for (int i = 0; i <= GRID_WIDTH; i++) {
+      g.drawLine(i * TILE_SIZE, 0, i * TILE_SIZE, PANEL_HEIGHT);
+    }
+    for (int i = 0; i <= GRID_HEIGHT; i++) {
+      g.drawLine(0, i * TILE_SIZE, PANEL_WIDTH, i * TILE_SIZE);
+    }
+    g.dispose();
+    return image;
+  }
+
+  private void fillCell(Graphics g, int cell) {
+    g.fillRect(cell % GRID_WIDTH * TILE_SIZE, cell / GRID_WIDTH * TILE_SIZE, TILE_SIZE, TILE_SIZE);
+  }
+
+  // A tile the given fraction of the way from one cell to the next
+  private void slideCell(Graphics g, int from, int to, float alpha) {
+    int fromX = from % GRID_WIDTH;
+    int fromY = from / GRID_WIDTH;
+    int dx = to % GRID_WIDTH - fromX;
+    int dy = to / GRID_WIDTH - fromY;
+    if (Math.abs(dx) + Math.abs(dy) != 1) {
+      // Wrapped around the edge: no straight line to slide along
+      fillCell(g, to);
+      return;
+    }
+    g.fillRect(fromX * TILE_SIZE + Math.round(dx * TILE_SIZE * alpha),
+        fromY * TILE_SIZE + Math.round(dy * TILE_SIZE * alpha), TILE_SIZE, TILE_SIZE);
+  }
+
+  private void updateOverlay(long windowNanos) {
+    overlay = String.format("%.0f fps, frame %.1f ms (max %.1f), render %.2f ms, tick jitter %.2f ms (max %.2f), "
+        + "%d dropped%s", frameInterval.count * 1e9 / windowNanos, frameInterval.meanMillis(),
+        frameInterval.maxMillis(), renderTime.meanMillis(), tickJitter.meanMillis(), tickJitter.maxMillis(),
+        droppedTicks, autopilot ? ", autopilot" : "");
+    frameInterval.reset();
+    renderTime.reset();
+    tickJitter.reset();
+  }
+
+  @Override
+  public void keyTyped(KeyEvent e) {
+  }
+
+  @Override
+  public void keyPressed(KeyEvent e) {
+    int kc = e.getKeyCode();
+    if (kc == KeyEvent.VK_P || kc == KeyEvent.VK_R || directionFor(kc) != null) {
+      // Dropped if the loop is far behind; a full queue is already more than a tick's worth of keys
+      keys.offer(kc);
+    }
+  }
+
+  @Override
+  public void keyReleased(KeyEvent e) {
+  }
+
+  // Count, mean and max of durations over the current overlay window
+  private static final class Stat {
+    private long count;
+    private long total;
+    private long max;
+
+    void add(long nanos) {
+      count++;
+      total += nanos;
+      max = Math.max(max, nanos);
+    }
+
+    double meanMillis() {
+      return count == 0 ? 0 : total / 1e6 / count;
+    }
+
+    double maxMillis() {
+      return max / 1e6;
+    }
+
+    void reset() {
+      count = 0;
+      total = 0;
+      max = 0;
+    }
+  }
+}
@@ -0,0 +1,102 @@
+package examples;
+
+import utils.Utils;
+
+/**
+ * Plays SnakeEngine games without a display, for bots, tests and benchmarks.
+ *
+ * Usage: java -cp app/build/libs/app.jar examples.SnakeRunner [games] [width] [height] [seed]
+ * plays games with the greedy strategy and reports ticks per second.
+ */
+public class SnakeRunner {
+  private final SnakeEngine engine;
+  private final SnakeStrategy strategy;
+  private final long maxTicks;
+
+  /**
+   * @param maxTicks ticks after which a game is stopped, so strategies that circle forever still end
+   */
+  public SnakeRunner(int width, int height, SnakeStrategy strategy, long maxTicks) {
+    this.engine = new SnakeEngine(width, height, 0);
+    this.strategy = strategy;
+    this.maxTicks = maxTicks;
+  }
+
+  /**
+   * Plays one game from the given seed. The engine is reused between games.
+   */
+  public GameResult play(long seed) {
+    engine.reset(seed);
+    SnakeEngine.Outcome outcome = SnakeEngine.Outcome.MOVED;
+    while (!engine.isOver() && engine.getTicks() < maxTicks) {
+      outcome = engine.step(strategy.next(engine));
+    }
+    return new GameResult(seed, engine.getScore(), engine.getTicks(), outcome);
+  }
+
+  public SnakeEngine getEngine() {
+    return engine;
+  }
+
+  public static void main(String[] args) {
+    int games = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+    int width = args.length > 1 ? Integer.parseInt(args[1]) : 30;
+    int height = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+    long seed = args.length > 3 ? Long.parseLong(args[3]) : 1L;
+    Utils.printLine("Headless Snake: " + games + " greedy games on " + width + "x" + height);
+
+    SnakeRunner runner = new SnakeRunner(width, height, SnakeStrategy.greedy(), 100L * width * height);
+    long ticks = 0;
+    long score = 0;
+    int best = 0;
+    long start = System.nanoTime();
+    for (int i = 0; i < games; i++) {
+      GameResult result = runner.play(seed + i);
+      ticks += result.getTicks();
+      score += result.getScore();
+      best = Math.max(best, result.getScore());
+    }
+    double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+    System.out.printf("%,d ticks in %.2f s (%,.0f ticks/s), average score %.1f, best %d%n",
+        ticks, seconds, ticks / seconds, (double) score / games, best);
+  }
+
+  /**
+   * Outcome of one game.
+   */
+  public static class GameResult {
+    private final long seed;
+    private final int score;
+    private final long ticks;
+    private final SnakeEngine.Outcome outcome;
+
+    GameResult(long seed, int score, long ticks, SnakeEngine.Outcome outcome) {
+      this.seed = seed;
+      this.score = score;
+      this.ticks = ticks;
+      this.outcome = outcome;
+    }
+
+    public long getSeed() {
+      return seed;
+    }
+
+    public int getScore() {
+      return score;
+    }
+
+    public long getTicks() {
+      return ticks;
+    }
+
+    // DIED or WON, or the last tick's outcome if the game hit maxTicks
+    public SnakeEngine.Outcome getOutcome() {
+      return outcome;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("seed %d: score %d in %d ticks (%s)", seed, score, ticks, outcome);
+    }
+  }
+}
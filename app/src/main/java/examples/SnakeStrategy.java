@@ -0,0 +1,46 @@
+package examples;
+
+/**
+ * Chooses the direction for the next tick of a SnakeEngine game, e.g. a bot
+ * or a replayed input sequence. Implementations should not modify the engine.
+ */
+@FunctionalInterface
+public interface SnakeStrategy {
+  /**
+   * @return the direction to turn to, or null to keep going straight
+   */
+  SnakeEngine.Direction next(SnakeEngine engine);
+
+  /**
+   * Turns towards the food when that is safe, otherwise takes any move that
+   * does not collide right away. Looks one step ahead only; a cheap baseline
+   * for runners and benchmarks.
+   */
+  static SnakeStrategy greedy() {
+    return engine -> {
+      SnakeEngine.Direction best = null;
+      int bestDistance = Integer.MAX_VALUE;
+      int food = engine.getFoodCell();
+      int width = engine.getWidth();
+      int height = engine.getHeight();
+      for (SnakeEngine.Direction d : SnakeEngine.directions()) {
+        if (d == engine.getDirection().opposite()) {
+          continue;
+        }
+        int next = engine.neighbor(engine.getHeadCell(), d);
+        if (engine.isOccupied(next)) {
+          continue;
+        }
+        // Distance on the wrapping board
+        int dx = Math.abs(next % width - food % width);
+        int dy = Math.abs(next / width - food / width);
+        int distance = Math.min(dx, width - dx) + Math.min(dy, height - dy);
+        if (distance < bestDistance) {
+          bestDistance = distance;
+          best = d;
+        }
+      }
+      return best;
+    };
+  }
+}
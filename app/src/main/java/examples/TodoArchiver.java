@@ -0,0 +1,320 @@
+package examples;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compaction job that moves todos completed longer ago than a threshold
+ * (by completed_at, see TodoSchema) from the hot todos table into
+ * todos_archive, so listing, export and search only touch live rows.
+ *
+ * Rows are moved in batches; each batch copies and deletes an id range in
+ * one transaction on the writer connection, and the writer is released
+ * between batches so interactive writes are not starved. Afterwards the
+ * database can optionally be compacted with VACUUM or incremental vacuum.
+ */
+public class TodoArchiver implements AutoCloseable {
+  public static final int DEFAULT_BATCH_SIZE = 1_000;
+
+  private static final String NEXT_BATCH_SQL =
+      "SELECT MAX(id), COUNT(*) FROM (SELECT id FROM todos " +
+          "WHERE completed = 1 AND id > ? AND completed_at < ? ORDER BY id LIMIT ?)";
+  private static final String COPY_SQL =
+      "INSERT OR REPLACE INTO todos_archive " +
+          "(id, title, description, due_date, completed, created_at, completed_at, archived_at) " +
+          "SELECT id, title, description, due_date, completed, created_at, completed_at, ? FROM todos " +
+          "WHERE completed = 1 AND id > ? AND id <= ? AND completed_at < ?";
+  private static final String DELETE_SQL =
+      "DELETE FROM todos WHERE completed = 1 AND id > ? AND id <= ? AND completed_at < ?";
+
+  /**
+   * What to do with the freed pages after archiving.
+   */
+  public enum VacuumMode {
+    // Leave free pages for SQLite to reuse
+    NONE,
+    // Release free pages to the file system in place. New databases are created with
+    // auto_vacuum=INCREMENTAL; an older one is rebuilt once by a manual archive(), never by start()
+    INCREMENTAL,
+    // Rebuild the whole file; needs temporary space about the size of the database
+    FULL
+  }
+
+  private final TodoRepository repository;
+  private final int batchSize;
+  private ScheduledExecutorService scheduler;
+  // The background job logs a skipped rebuild only once
+  private boolean rebuildSkipLogged;
+  // Set by close(): a running archive stops after its current batch
+  private volatile boolean stopping;
+
+  public TodoArchiver(TodoRepository repository) {
+    this(repository, DEFAULT_BATCH_SIZE);
+  }
+
+  public TodoArchiver(TodoRepository repository, int batchSize) {
+    if (batchSize < 1) {
+      throw new IllegalArgumentException("batchSize must be positive: " + batchSize);
+    }
+    this.repository = repository;
+    this.batchSize = batchSize;
+  }
+
+  /**
+   * Archives todos completed more than olderThan ago.
+   */
+  public ArchiveResult archive(Duration olderThan, VacuumMode vacuum) throws SQLException {
+    return archive(olderThan, vacuum, true);
+  }
+
+  /**
+   * @param allowRebuild whether INCREMENTAL may rebuild a database that is not in
+   *     auto_vacuum=INCREMENTAL mode yet, which holds the writer for a full VACUUM
+   */
+  private ArchiveResult archive(Duration olderThan, VacuumMode vacuum, boolean allowRebuild) throws SQLException {
+    long start = System.nanoTime();
+    long now = System.currentTimeMillis();
+    long cutoff = now - olderThan.toMillis();
+    TodoConnectionPool pool = repository.getPool();
+
+    long bytesBefore;
+    try (Connection conn = pool.getReadConnection()) {
+      bytesBefore = fileBytes(conn);
+    }
+
+    long moved = 0;
+    int batches = 0;
+    int afterId = 0;
+    try {
+      while (!stopping) {
+        // Holding the single writer keeps the batch range stable between the two statements
+        try (Connection conn = pool.getWriteConnection()) {
+          int lastId = nextBatchEnd(conn, afterId, cutoff);
+          if (lastId < 0) {
+            break;
+          }
+          moved += moveRange(conn, afterId, lastId, cutoff, now);
+          afterId = lastId;
+        }
+        batches++;
+      }
+    } finally {
+      if (moved > 0) {
+        // Archived rows left the todos table: drop them from the cache and tell listeners
+        repository.committedAll();
+      }
+    }
+
+    long bytesAfter;
+    long freeBytes;
+    try (Connection conn = pool.getWriteConnection()) {
+      if (moved > 0 && !stopping) {
+        vacuum(conn, vacuum, allowRebuild);
+      }
+      bytesAfter = fileBytes(conn);
+      freeBytes = freeBytes(conn);
+    }
+    return new ArchiveResult(moved, batches, bytesBefore, bytesAfter, freeBytes, System.nanoTime() - start);
+  }
+
+  // Last id of the next batch after afterId, or -1 when nothing is left to archive
+  private int nextBatchEnd(Connection conn, int afterId, long cutoff) throws SQLException {
+    try (PreparedStatement ps = conn.prepareStatement(NEXT_BATCH_SQL)) {
+      ps.setInt(1, afterId);
+      ps.setLong(2, cutoff);
+      ps.setInt(3, batchSize);
+      try (ResultSet rs = ps.executeQuery()) {
+        return rs.next() && rs.getInt(2) > 0 ? rs.getInt(1) : -1;
+      }
+    }
+  }
+
+  // Copies and deletes the batch (afterId, lastId] in one transaction
+  private static int moveRange(Connection conn, int afterId, int lastId, long cutoff, long now)
+      throws SQLException {
+    conn.setAutoCommit(false);
+    try {
+      int moved;
+      try (PreparedStatement ps = conn.prepareStatement(COPY_SQL)) {
+        ps.setLong(1, now);
+        ps.setInt(2, afterId);
+        ps.setInt(3, lastId);
+        ps.setLong(4, cutoff);
+        ps.executeUpdate();
+      }
+      try (PreparedStatement ps = conn.prepareStatement(DELETE_SQL)) {
+        ps.setInt(1, afterId);
+        ps.setInt(2, lastId);
+        ps.setLong(3, cutoff);
+        moved = ps.executeUpdate();
+      }
+      conn.commit();
+      return moved;
+    } catch (SQLException e) {
+      conn.rollback();
+      throw e;
+    } finally {
+      conn.setAutoCommit(true);
+    }
+  }
+
+  private void vacuum(Connection conn, VacuumMode mode, boolean allowRebuild) throws SQLException {
+    try (Statement stmt = conn.createStatement()) {
+      switch (mode) {
+        case FULL:
+          stmt.execute("VACUUM");
+          break;
+        case INCREMENTAL:
+          if (queryLong(stmt, "PRAGMA auto_vacuum") == 2) {
+            stmt.execute("PRAGMA incremental_vacuum");
+          } else if (allowRebuild) {
+            // auto_vacuum of an existing database can only be changed by rebuilding the file once
+            stmt.execute("PRAGMA auto_vacuum = INCREMENTAL");
+            stmt.execute("VACUUM");
+          } else {
+            if (!rebuildSkipLogged) {
+              rebuildSkipLogged = true;
+              System.err.println("Archive: database is not in auto_vacuum=INCREMENTAL mode, skipping the vacuum; "
+                  + "archive once from the menu with incremental vacuum to convert it");
+            }
+            return;
+          }
+          break;
+        default:
+          return;
+      }
+      // Copy the WAL back and truncate it so the file sizes reflect the result
+      stmt.execute("PRAGMA wal_checkpoint(TRUNCATE)");
+    }
+  }
+
+  // Size of the main database file in bytes
+  private static long fileBytes(Connection conn) throws SQLException {
+    try (Statement stmt = conn.createStatement()) {
+      return queryLong(stmt, "PRAGMA page_count") * queryLong(stmt, "PRAGMA page_size");
+    }
+  }
+
+  // Bytes held by free pages that SQLite will reuse before growing the file
+  private static long freeBytes(Connection conn) throws SQLException {
+    try (Statement stmt = conn.createStatement()) {
+      return queryLong(stmt, "PRAGMA freelist_count") * queryLong(stmt, "PRAGMA page_size");
+    }
+  }
+
+  private static long queryLong(Statement stmt, String sql) throws SQLException {
+    try (ResultSet rs = stmt.executeQuery(sql)) {
+      return rs.next() ? rs.getLong(1) : 0;
+    }
+  }
+
+  /**
+   * Runs archive() periodically on a background daemon thread until close().
+   */
+  public synchronized void start(Duration olderThan, VacuumMode vacuum, Duration period) {
+    if (scheduler != null) {
+      throw new IllegalStateException("Archiver is already running");
+    }
+    stopping = false;
+    scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+      Thread thread = new Thread(r, "TodoArchiver");
+      thread.setDaemon(true);
+      return thread;
+    });
+    scheduler.scheduleWithFixedDelay(() -> {
+      try {
+        // Never a full rebuild from here: it would hold the only writer for the whole VACUUM
+        ArchiveResult result = archive(olderThan, vacuum, false);
+        if (result.getRows() > 0) {
+          System.out.println("\n[Archive] " + result);
+        }
+      } catch (SQLException | RuntimeException e) {
+        System.err.println("Error archiving todos: " + e.getMessage());
+      }
+    }, period.toMillis(), period.toMillis(), TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Stops the background job, letting a running archive finish its current
+   * batch first, so the pool can be closed afterwards.
+   */
+  @Override
+  public synchronized void close() {
+    if (scheduler == null) {
+      return;
+    }
+    stopping = true;
+    scheduler.shutdown();
+    try {
+      scheduler.awaitTermination(30, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    scheduler = null;
+  }
+
+  /**
+   * Outcome of one archive run.
+   */
+  public static class ArchiveResult {
+    private final long rows;
+    private final int batches;
+    private final long bytesBefore;
+    private final long bytesAfter;
+    private final long freeBytes;
+    private final long elapsedNanos;
+
+    ArchiveResult(long rows, int batches, long bytesBefore, long bytesAfter, long freeBytes, long elapsedNanos) {
+      this.rows = rows;
+      this.batches = batches;
+      this.bytesBefore = bytesBefore;
+      this.bytesAfter = bytesAfter;
+      this.freeBytes = freeBytes;
+      this.elapsedNanos = elapsedNanos;
+    }
+
+    public long getRows() {
+      return rows;
+    }
+
+    public int getBatches() {
+      return batches;
+    }
+
+    public long getBytesBefore() {
+      return bytesBefore;
+    }
+
+    public long getBytesAfter() {
+      return bytesAfter;
+    }
+
+    // Bytes returned to the file system by vacuuming
+    public long getBytesReclaimed() {
+      return bytesBefore - bytesAfter;
+    }
+
+    // Free pages left inside the file, e.g. when archiving without vacuum
+    public long getFreeBytes() {
+      return freeBytes;
+    }
+
+    public double getElapsedSeconds() {
+      return elapsedNanos / 1_000_000_000.0;
+    }
+
+    @Override
+    public String toString() {
+      return String.format(
+          "%d todos archived in %d batches, %.2f s; database %,d -> %,d bytes (%,d reclaimed, %,d free)",
+          rows, batches, getElapsedSeconds(), bytesBefore, bytesAfter, getBytesReclaimed(), freeBytes);
+    }
+  }
+}
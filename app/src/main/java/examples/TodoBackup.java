@@ -0,0 +1,218 @@
+package examples;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Point-in-time copies of the todo database while the application keeps
+ * writing to it.
+ *
+ * Both methods read from a pooled reader connection inside one read
+ * transaction. In WAL mode that pins a consistent snapshot without blocking
+ * the writer, and it stops the online backup from restarting whenever
+ * another connection commits.
+ * <ul>
+ *   <li>snapshot() uses VACUUM INTO: one pass, and the copy comes out compacted.</li>
+ *   <li>backup() uses SQLite's online backup API in steps of pagesPerStep
+ *       pages and pauses between steps, which limits the I/O taken from
+ *       foreground queries.</li>
+ * </ul>
+ * Copies are written next to the target and renamed into place, so a
+ * failed backup never leaves a half-written file under the target name.
+ */
+public class TodoBackup {
+  public static final int DEFAULT_PAGES_PER_STEP = 256;
+
+  private final TodoRepository repository;
+
+  public TodoBackup(TodoRepository repository) {
+    this.repository = repository;
+  }
+
+  /**
+   * Copies the database with VACUUM INTO.
+   */
+  public BackupResult snapshot(Path target) throws SQLException, IOException {
+    long start = System.nanoTime();
+    Path temp = tempFileFor(target);
+    try (Connection conn = repository.getPool().getReadConnection();
+        Statement stmt = conn.createStatement()) {
+      // Reader connections are query_only, which would also reject writing the copy
+      stmt.execute("PRAGMA query_only = OFF");
+      try (PreparedStatement ps = conn.prepareStatement("VACUUM INTO ?")) {
+        ps.setString(1, temp.toString());
+        ps.execute();
+      } finally {
+        stmt.execute("PRAGMA query_only = ON");
+      }
+    } catch (SQLException e) {
+      Files.deleteIfExists(temp);
+      throw e;
+    }
+    return finish(temp, target, 1, start);
+  }
+
+  /**
+   * Copies the database with the online backup API, pagesPerStep pages at a
+   * time with a pause of pauseMillis after each step.
+   */
+  public BackupResult backup(Path target, int pagesPerStep, long pauseMillis) throws SQLException, IOException {
+    if (pagesPerStep < 1) {
+      throw new IllegalArgumentException("pagesPerStep must be positive: " + pagesPerStep);
+    }
+    long start = System.nanoTime();
+    Path temp = tempFileFor(target);
+    int steps;
+    try (Connection conn = repository.getPool().getReadConnection()) {
+      // Open the read transaction the backup will copy from
+      conn.setAutoCommit(false);
+      try (Statement stmt = conn.createStatement();
+          ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM sqlite_master")) {
+        rs.next();
+      }
+      steps = steppedBackup(conn, temp, pagesPerStep, pauseMillis);
+    } catch (SQLException e) {
+      Files.deleteIfExists(temp);
+      throw e;
+    }
+    return finish(temp, target, steps, start);
+  }
+
+  /**
+   * Replaces the contents of the live database with a backup file. Readers see
+   * the restored data from their next transaction on; the repository cache
+   * and its listeners are reset.
+   */
+  public void restore(Path source) throws SQLException, IOException {
+    if (!Files.isRegularFile(source)) {
+      throw new IOException("Backup file not found: " + source);
+    }
+    try (Connection conn = repository.getPool().getWriteConnection();
+        Statement stmt = conn.createStatement()) {
+      // sqlite-jdbc command, copies the file page by page into the main database
+      stmt.executeUpdate("restore from " + quote(source));
+    } finally {
+      repository.committedAll();
+    }
+  }
+
+  // Runs the driver's stepped backup through reflection, because sqlite-jdbc
+  // only exposes it on its internal DB class. Falls back to "backup to",
+  // which copies in one step, if that API is not available.
+  private static int steppedBackup(Connection conn, Path target, int pagesPerStep, long pauseMillis)
+      throws SQLException {
+    Method backup;
+    Object db;
+    Class<?> observerType;
+    try {
+      Object sqliteConn = conn.unwrap(Class.forName("org.sqlite.SQLiteConnection"));
+      db = sqliteConn.getClass().getMethod("getDatabase").invoke(sqliteConn);
+      observerType = Class.forName("org.sqlite.core.DB$ProgressObserver");
+      backup = db.getClass().getMethod("backup",
+          String.class, String.class, observerType, int.class, int.class, int.class);
+    } catch (ReflectiveOperationException e) {
+      try (Statement stmt = conn.createStatement()) {
+        stmt.executeUpdate("backup to " + quote(target));
+      }
+      return 1;
+    }
+
+    int[] steps = new int[1];
+    // Called by the driver after every step; pausing here is what throttles the copy
+    Object observer = Proxy.newProxyInstance(observerType.getClassLoader(), new Class<?>[] { observerType },
+        (proxy, method, args) -> {
+          if (method.getName().equals("progress")) {
+            steps[0]++;
+            int remaining = (Integer) args[0];
+            if (remaining > 0 && pauseMillis > 0) {
+              try {
+                Thread.sleep(pauseMillis);
+              } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+              }
+            }
+          }
+          return null;
+        });
+    try {
+      // Arguments: busy sleep, busy retries, pages per step
+      int rc = (Integer) backup.invoke(db, "main", target.toString(), observer, 100, 50, pagesPerStep);
+      if (rc != 0) {
+        throw new SQLException("Backup failed with SQLite error code " + rc);
+      }
+    } catch (InvocationTargetException e) {
+      if (e.getCause() instanceof SQLException) {
+        throw (SQLException) e.getCause();
+      }
+      throw new SQLException("Backup failed", e.getCause());
+    } catch (IllegalAccessException e) {
+      throw new SQLException("Backup failed", e);
+    }
+    return steps[0];
+  }
+
+  private static Path tempFileFor(Path target) throws IOException {
+    Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+    // VACUUM INTO refuses to overwrite an existing file
+    Files.deleteIfExists(temp);
+    return temp;
+  }
+
+  private static BackupResult finish(Path temp, Path target, int steps, long start) throws IOException {
+    Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    return new BackupResult(target, Files.size(target), steps, System.nanoTime() - start);
+  }
+
+  static String quote(Path path) {
+    return "'" + path.toString().replace("'", "''") + "'";
+  }
+
+  /**
+   * Outcome of one backup.
+   */
+  public static class BackupResult {
+    private final Path file;
+    private final long bytes;
+    private final int steps;
+    private final long elapsedNanos;
+
+    BackupResult(Path file, long bytes, int steps, long elapsedNanos) {
+      this.file = file;
+      this.bytes = bytes;
+      this.steps = steps;
+      this.elapsedNanos = elapsedNanos;
+    }
+
+    public Path getFile() {
+      return file;
+    }
+
+    public long getBytes() {
+      return bytes;
+    }
+
+    public int getSteps() {
+      return steps;
+    }
+
+    public double getElapsedSeconds() {
+      return elapsedNanos / 1_000_000_000.0;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("%s: %,d bytes in %d steps, %.2f s (%.1f MB/s)",
+          file, bytes, steps, getElapsedSeconds(), bytes / 1_000_000.0 / getElapsedSeconds());
+    }
+  }
+}
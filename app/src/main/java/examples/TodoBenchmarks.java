@@ -0,0 +1,870 @@
+package examples;
+
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonWriter;
+import examples.JDBCOperations.Todo;
+import utils.Utils;
+import java.io.File;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Command-line benchmarks for the SQLite todo store.
+ * Every scenario works on a scratch database (todo-bench.db) so the real
+ * todo.db is never touched.
+ *
+ * Usage: java -cp app/build/libs/app.jar examples.TodoBenchmarks &lt;scenario&gt;
+ */
+public class TodoBenchmarks {
+  private static final String BENCH_FILE = "todo-bench.db";
+  private static final String BENCH_URL = "jdbc:sqlite:" + BENCH_FILE;
+  private static final int SECONDS = Integer.getInteger("bench.seconds", 5);
+  private static final int ROWS = Integer.getInteger("bench.rows", 100_000);
+  // Seeded due dates start here and are one minute apart
+  private static final long SEED_DUE = TodoDates.toMillis(LocalDateTime.of(2030, 1, 1, 12, 0));
+  private static final long UPDATE_DUE = TodoDates.toMillis(LocalDateTime.of(2031, 1, 1, 9, 0));
+  // Warmup and measured iterations for scenarios that report a mean and deviation
+  private static final int WARMUP_ITERATIONS = Integer.getInteger("bench.warmup", 3);
+  private static final int ITERATIONS = Integer.getInteger("bench.iterations", 5);
+
+  @FunctionalInterface
+  interface RowHandler {
+    void handle(ResultSet rs) throws Exception;
+  }
+
+  @FunctionalInterface
+  interface ConnectionSource {
+    Connection open() throws SQLException;
+  }
+
+  public static void main(String[] args) throws Exception {
+    String scenario = args.length > 0 ? args[0] : "help";
+    switch (scenario) {
+      case "wal":
+        benchmarkReadsDuringWrites();
+        break;
+      case "import":
+        benchmarkBulkImport();
+        break;
+      case "export":
+        benchmarkStreamingExport();
+        break;
+      case "paging":
+        benchmarkPaging();
+        break;
+      case "search":
+        benchmarkSearch();
+        break;
+      case "writebehind":
+        benchmarkWriteBehind();
+        break;
+      case "cache":
+        benchmarkCache();
+        break;
+      case "update":
+        benchmarkUpdates();
+        break;
+      case "due":
+        benchmarkDueRanges();
+        break;
+      case "backup":
+        benchmarkBackup();
+        break;
+      case "changes":
+        benchmarkIncrementalExport();
+        break;
+      case "mapping":
+        benchmarkRowMapping();
+        break;
+      case "memory":
+        benchmarkMemoryStorage();
+        break;
+      default:
+        System.out.println("Scenarios:");
+        System.out.println("  wal     concurrent reads during writes, rollback journal vs WAL profiles");
+        System.out.println("  import  row-at-a-time autocommit inserts vs batched bulk import");
+        System.out.println("  export  streaming JSON export throughput and heap use");
+        System.out.println("  paging  OFFSET vs keyset page latency at increasing depth");
+        System.out.println("  search  FTS5 MATCH vs LIKE '%term%' scans (default 1M rows)");
+        System.out.println("  writebehind  synchronous adds vs write-behind queue from many threads");
+        System.out.println("  cache   findById on a hot set with and without the read-through cache");
+        System.out.println("  update  dynamic UPDATE without statement cache vs canonical cached statements");
+        System.out.println("  due     overdue / due-this-week pages, id order with due filter vs due-ordered range scan");
+        System.out.println("  backup  VACUUM INTO vs stepped online backup by database size, with a writer running");
+        System.out.println("  changes full JSON export vs incremental export of the change feed");
+        System.out.println("  mapping row mapping by column name vs resolved index, Todo objects vs direct JSON");
+        System.out.println("  memory  file storage vs in-memory storage with checkpoints, mixed adds and reads");
+    }
+  }
+
+  // ===== Scratch database helpers =====
+
+  static void deleteBenchDatabase() {
+    for (String suffix : new String[] { "", "-wal", "-shm", "-journal" }) {
+      File f = new File(BENCH_FILE + suffix);
+      if (f.exists() && !f.delete()) {
+        System.err.println("Could not delete " + f);
+      }
+    }
+  }
+
+  static TodoConnectionPool freshPool(int readers, TodoDbProfile profile) throws SQLException {
+    return freshPool(readers, profile, TodoConnectionPool.DEFAULT_STATEMENT_CACHE_SIZE);
+  }
+
+  static TodoConnectionPool freshPool(int readers, TodoDbProfile profile, int statementCacheSize)
+      throws SQLException {
+    deleteBenchDatabase();
+    TodoConnectionPool pool = new TodoConnectionPool(BENCH_URL, readers, profile, statementCacheSize);
+    try (Connection conn = pool.getWriteConnection()) {
+      TodoSchema.create(conn);
+    }
+    return pool;
+  }
+
+  static void seed(Connection conn, int rows) throws SQLException {
+    conn.setAutoCommit(false);
+    try (PreparedStatement ps = conn.prepareStatement(
+        "INSERT INTO todos (title, description, due_date, completed) VALUES (?, ?, ?, ?)")) {
+      for (int i = 0; i < rows; i++) {
+        ps.setString(1, "Todo " + i);
+        ps.setString(2, "Seeded description number " + i);
+        ps.setLong(3, SEED_DUE + i * 60_000L);
+        ps.setInt(4, i % 3 == 0 ? 1 : 0);
+        ps.addBatch();
+        if (i % 1_000 == 999) {
+          ps.executeBatch();
+        }
+      }
+      ps.executeBatch();
+      conn.commit();
+    } finally {
+      conn.setAutoCommit(true);
+    }
+  }
+
+  // ===== Scenario: reads during writes =====
+
+  private static void benchmarkReadsDuringWrites() throws Exception {
+    Utils.printLine("Concurrent reads during writes (" + SECONDS + " s per run)");
+    int readerThreads = 4;
+
+    // Baseline: default rollback journal on plain connections
+    deleteBenchDatabase();
+    ConnectionSource rollback = () -> {
+      Connection conn = DriverManager.getConnection(BENCH_URL);
+      try (Statement stmt = conn.createStatement()) {
+        stmt.execute("PRAGMA busy_timeout = 5000");
+        stmt.execute("PRAGMA journal_mode = DELETE");
+      }
+      return conn;
+    };
+    try (Connection conn = rollback.open()) {
+      TodoSchema.create(conn);
+      seed(conn, 20_000);
+    }
+    runReadsDuringWrites("rollback journal", rollback, rollback, readerThreads);
+
+    for (TodoDbProfile profile : TodoDbProfile.values()) {
+      try (TodoConnectionPool pool = freshPool(readerThreads, profile)) {
+        try (Connection conn = pool.getWriteConnection()) {
+          seed(conn, 20_000);
+        }
+        runReadsDuringWrites(profile.toString(), pool::getWriteConnection,
+            pool::getReadConnection, readerThreads);
+      }
+    }
+  }
+
+  private static void runReadsDuringWrites(String label, ConnectionSource writerSource,
+      ConnectionSource readerSource, int readerThreads) throws InterruptedException {
+    AtomicBoolean stop = new AtomicBoolean();
+    AtomicLong commits = new AtomicLong();
+    AtomicLong reads = new AtomicLong();
+    AtomicLong readErrors = new AtomicLong();
+    AtomicLong maxReadNanos = new AtomicLong();
+    List<Thread> threads = new ArrayList<>();
+
+    threads.add(new Thread(() -> {
+      try (Connection conn = writerSource.open();
+          PreparedStatement ps = conn.prepareStatement(
+              "INSERT INTO todos (title, description, due_date) VALUES (?, ?, ?)")) {
+        while (!stop.get()) {
+          conn.setAutoCommit(false);
+          for (int i = 0; i < 200; i++) {
+            ps.setString(1, "Write " + i);
+            ps.setString(2, "Inserted while readers run");
+            ps.setLong(3, SEED_DUE);
+            ps.executeUpdate();
+          }
+          conn.commit();
+          conn.setAutoCommit(true);
+          commits.incrementAndGet();
+        }
+      } catch (SQLException e) {
+        System.err.println("Writer failed: " + e.getMessage());
+      }
+    }, "BenchWriter"));
+
+    for (int r = 0; r < readerThreads; r++) {
+      threads.add(new Thread(() -> {
+        try (Connection conn = readerSource.open();
+            PreparedStatement ps = conn.prepareStatement(
+                "SELECT COUNT(*) FROM todos WHERE completed = 0")) {
+          while (!stop.get()) {
+            long start = System.nanoTime();
+            try (ResultSet rs = ps.executeQuery()) {
+              rs.next();
+              reads.incrementAndGet();
+            } catch (SQLException e) {
+              readErrors.incrementAndGet();
+            }
+            maxReadNanos.accumulateAndGet(System.nanoTime() - start, Math::max);
+          }
+        } catch (SQLException e) {
+          System.err.println("Reader failed: " + e.getMessage());
+        }
+      }, "BenchReader-" + r));
+    }
+
+    threads.forEach(Thread::start);
+    TimeUnit.SECONDS.sleep(SECONDS);
+    stop.set(true);
+    for (Thread t : threads) {
+      t.join();
+    }
+
+    System.out.printf("%-75s commits/s: %8.1f  reads/s: %9.1f  max read: %8.2f ms  read errors: %d%n",
+        label, commits.get() / (double) SECONDS, reads.get() / (double) SECONDS,
+        maxReadNanos.get() / 1_000_000.0, readErrors.get());
+  }
+
+  // ===== Scenario: bulk import =====
+
+  static Stream<Todo> generateTodos(int count) {
+    return IntStream.range(0, count)
+        .mapToObj(i -> new Todo("Imported " + i, "Bulk imported description " + i, SEED_DUE));
+  }
+
+  private static void benchmarkBulkImport() throws SQLException {
+    Utils.printLine("Bulk import (" + ROWS + " rows, durable profile)");
+
+    // Baseline: one autocommitted INSERT per todo, i.e. one fsync per row
+    int baselineRows = Math.min(ROWS, 2_000);
+    try (TodoConnectionPool pool = freshPool(1, TodoDbProfile.DURABLE)) {
+      long start = System.nanoTime();
+      try (Connection conn = pool.getWriteConnection();
+          PreparedStatement ps = conn.prepareStatement(
+              "INSERT INTO todos (title, description, due_date) VALUES (?, ?, ?)")) {
+        for (int i = 0; i < baselineRows; i++) {
+          ps.setString(1, "Imported " + i);
+          ps.setString(2, "Bulk imported description " + i);
+          ps.setLong(3, SEED_DUE);
+          ps.executeUpdate();
+        }
+      }
+      double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+      System.out.printf("%-22s %d rows in %.2f s (%.0f rows/s)%n",
+          "autocommit per row", baselineRows, seconds, baselineRows / seconds);
+    }
+
+    for (int batchSize : new int[] { 100, 1_000, 10_000 }) {
+      try (TodoConnectionPool pool = freshPool(1, TodoDbProfile.DURABLE)) {
+        TodoBulkImporter importer = new TodoBulkImporter(pool, batchSize);
+        TodoBulkImporter.ImportResult result = importer.importTodos(generateTodos(ROWS));
+        System.out.printf("%-22s %s%n", "batch size " + batchSize, result);
+      }
+    }
+  }
+
+  // ===== Scenario: streaming export =====
+
+  private static void benchmarkStreamingExport() throws Exception {
+    Utils.printLine("Streaming JSON export (" + ROWS + " rows)");
+    try (TodoConnectionPool pool = freshPool(1, TodoDbProfile.FAST)) {
+      new TodoBulkImporter(pool, 10_000).importTodos(generateTodos(ROWS));
+      TodoJsonExporter exporter = new TodoJsonExporter(pool);
+
+      for (boolean pretty : new boolean[] { false, true }) {
+        Runtime rt = Runtime.getRuntime();
+        System.gc();
+        long heapBefore = rt.totalMemory() - rt.freeMemory();
+        long[] bytes = new long[1];
+        OutputStream sink = new OutputStream() {
+          @Override
+          public void write(int b) {
+            bytes[0]++;
+          }
+
+          @Override
+          public void write(byte[] b, int off, int len) {
+            bytes[0] += len;
+          }
+        };
+        long start = System.nanoTime();
+        long rows = exporter.export(sink, pretty);
+        double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+        long heapAfter = rt.totalMemory() - rt.freeMemory();
+        System.out.printf("%-8s %d rows, %.1f MB in %.2f s (%.0f rows/s), heap delta %.1f MB%n",
+            pretty ? "pretty" : "compact", rows, bytes[0] / 1e6, seconds, rows / seconds,
+            (heapAfter - heapBefore) / 1e6);
+      }
+    }
+  }
+
+  // ===== Scenario: pagination =====
+
+  private static void benchmarkPaging() throws SQLException {
+    Utils.printLine("Page latency by depth (" + ROWS + " rows, 20 per page)");
+    int pageSize = 20;
+    int repeats = 50;
+    try (TodoConnectionPool pool = freshPool(1, TodoDbProfile.FAST)) {
+      try (Connection conn = pool.getWriteConnection()) {
+        seed(conn, ROWS);
+      }
+      try (Connection conn = pool.getReadConnection();
+          PreparedStatement offsetStmt = conn.prepareStatement(
+              "SELECT id, title, description, due_date, completed, created_at FROM todos "
+                  + "WHERE completed = 0 ORDER BY id LIMIT ? OFFSET ?")) {
+        System.out.printf("%10s %14s %14s%n", "page", "offset (us)", "keyset (us)");
+        for (int page = 1; page * pageSize < ROWS; page *= 10) {
+          int skip = (page - 1) * pageSize;
+
+          long start = System.nanoTime();
+          for (int r = 0; r < repeats; r++) {
+            offsetStmt.setInt(1, pageSize);
+            offsetStmt.setInt(2, skip);
+            try (ResultSet rs = offsetStmt.executeQuery()) {
+              while (rs.next()) {
+                rs.getInt(1);
+              }
+            }
+          }
+          double offsetMicros = (System.nanoTime() - start) / 1_000.0 / repeats;
+
+          // Seeded rows are contiguous, so the cursor of page n is roughly known
+          TodoPageQuery query = new TodoPageQuery().withLimit(pageSize).withCompleted(false)
+              .afterId(skip * 3 / 2);
+          start = System.nanoTime();
+          for (int r = 0; r < repeats; r++) {
+            query.fetch(conn);
+          }
+          double keysetMicros = (System.nanoTime() - start) / 1_000.0 / repeats;
+          System.out.printf("%10d %14.1f %14.1f%n", page, offsetMicros, keysetMicros);
+        }
+      }
+    }
+  }
+
+  // ===== Scenario: due date ranges =====
+
+  private static void benchmarkDueRanges() throws SQLException {
+    Utils.printLine("Due date range pages (" + ROWS + " rows, 20 per page)");
+    int repeats = 200;
+    try (TodoConnectionPool pool = freshPool(1, TodoDbProfile.FAST)) {
+      try (Connection conn = pool.getWriteConnection()) {
+        seed(conn, ROWS);
+      }
+      // "Now" sits in the middle of the seeded due dates
+      long now = SEED_DUE + ROWS / 2 * 60_000L;
+      TodoPageQuery[] queries = { TodoPageQuery.overdue(now), TodoPageQuery.dueThisWeek(now) };
+      String[] labels = { "overdue", "due this week" };
+      // How TodoPageQuery filtered on due dates before: id order with the range as a filter
+      String idOrderedSql = "SELECT id, title, description, due_date, completed, created_at FROM todos "
+          + "WHERE id > 0 AND completed = 0 AND due_date >= ? AND due_date < ? ORDER BY id LIMIT 21";
+
+      try (Connection conn = pool.getReadConnection()) {
+        for (int q = 0; q < queries.length; q++) {
+          long from = q == 0 ? Long.MIN_VALUE : TodoDates.startOfWeek(now);
+          long to = q == 0 ? now : TodoDates.startOfNextWeek(now);
+          long start = System.nanoTime();
+          try (PreparedStatement ps = conn.prepareStatement(idOrderedSql)) {
+            for (int r = 0; r < repeats; r++) {
+              ps.setLong(1, from);
+              ps.setLong(2, to);
+              try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                  rs.getInt(1);
+                }
+              }
+            }
+          }
+          double idOrderedMicros = (System.nanoTime() - start) / 1_000.0 / repeats;
+
+          start = System.nanoTime();
+          for (int r = 0; r < repeats; r++) {
+            queries[q].fetch(conn);
+          }
+          double rangeMicros = (System.nanoTime() - start) / 1_000.0 / repeats;
+          System.out.printf("%-14s id order + filter %10.1f us   due-ordered range %10.1f us%n",
+              labels[q], idOrderedMicros, rangeMicros);
+          printQueryPlan(conn, queries[q].toSql());
+        }
+      }
+    }
+  }
+
+  private static void printQueryPlan(Connection conn, String sql) throws SQLException {
+    try (PreparedStatement ps = conn.prepareStatement("EXPLAIN QUERY PLAN " + sql)) {
+      // Planning only needs the statement shape, not real parameter values
+      for (int i = 1; i <= ps.getParameterMetaData().getParameterCount(); i++) {
+        ps.setLong(i, 0);
+      }
+      try (ResultSet rs = ps.executeQuery()) {
+        while (rs.next()) {
+          System.out.println("    plan: " + rs.getString("detail"));
+        }
+      }
+    }
+  }
+
+  // ===== Scenario: incremental export =====
+
+  private static void benchmarkIncrementalExport() throws Exception {
+    Utils.printLine("Full vs incremental JSON export (" + ROWS + " rows)");
+    OutputStream discard = OutputStream.nullOutputStream();
+    try (TodoConnectionPool pool = freshPool(1, TodoDbProfile.FAST)) {
+      try (Connection conn = pool.getWriteConnection()) {
+        seed(conn, ROWS);
+      }
+      TodoRepository repository = new TodoRepository(pool, 0);
+      long seq = new TodoChangeFeed(pool).currentSequence();
+      System.out.printf("%10s %14s %18s%n", "changes", "full (ms)", "incremental (ms)");
+      for (int changes : new int[] { 10, 100, 1_000, 10_000 }) {
+        for (int i = 0; i < changes; i++) {
+          repository.update(1 + (i * 7919) % ROWS, new TodoUpdate().withCompleted(i % 2 == 0));
+        }
+        long start = System.nanoTime();
+        repository.exportJson(discard, false);
+        double fullMillis = (System.nanoTime() - start) / 1_000_000.0;
+
+        start = System.nanoTime();
+        seq = repository.exportChangesJson(discard, seq, false);
+        double incrementalMillis = (System.nanoTime() - start) / 1_000_000.0;
+        System.out.printf("%10d %14.1f %18.1f%n", changes, fullMillis, incrementalMillis);
+      }
+    }
+  }
+
+  // ===== Scenario: online backup =====
+
+  private static void benchmarkBackup() throws Exception {
+    Utils.printLine("Backup time by database size (a writer keeps inserting meanwhile)");
+    Path target = Paths.get("todo-bench-backup.db");
+    System.out.printf("%10s %12s %-28s %10s %16s%n", "rows", "db bytes", "method", "time (ms)", "max insert (ms)");
+    for (int rows : new int[] { ROWS / 10, ROWS / 2, ROWS }) {
+      try (TodoConnectionPool pool = freshPool(2, TodoDbProfile.DEFAULT)) {
+        try (Connection conn = pool.getWriteConnection()) {
+          seed(conn, rows);
+        }
+        long dbBytes = new File(BENCH_FILE).length();
+        TodoBackup backup = new TodoBackup(new TodoRepository(pool));
+        String[] methods = { "VACUUM INTO", "backup, 256 pages/step", "backup, 256 pages/step + 1 ms" };
+        for (int m = 0; m < methods.length; m++) {
+          int method = m;
+          long[] maxInsertNanos = new long[1];
+          TodoBackup.BackupResult result = whileInserting(pool, maxInsertNanos, () -> method == 0
+              ? backup.snapshot(target)
+              : backup.backup(target, 256, method == 2 ? 1 : 0));
+          System.out.printf("%10d %12d %-28s %10.1f %16.2f%n", rows, dbBytes, methods[m],
+              result.getElapsedSeconds() * 1_000, maxInsertNanos[0] / 1_000_000.0);
+        }
+      }
+    }
+    Files.deleteIfExists(target);
+  }
+
+  @FunctionalInterface
+  interface BackupTask {
+    TodoBackup.BackupResult run() throws Exception;
+  }
+
+  // Runs the task while another thread inserts rows, recording the slowest insert
+  private static TodoBackup.BackupResult whileInserting(TodoConnectionPool pool, long[] maxInsertNanos,
+      BackupTask task) throws Exception {
+    AtomicBoolean stop = new AtomicBoolean();
+    AtomicLong max = new AtomicLong();
+    Thread writer = new Thread(() -> {
+      try {
+        while (!stop.get()) {
+          long start = System.nanoTime();
+          try (Connection conn = pool.getWriteConnection();
+              PreparedStatement ps = conn.prepareStatement(
+                  "INSERT INTO todos (title, description, due_date) VALUES (?, ?, ?)")) {
+            ps.setString(1, "During backup");
+            ps.setString(2, "Inserted while the backup runs");
+            ps.setLong(3, SEED_DUE);
+            ps.executeUpdate();
+          }
+          max.accumulateAndGet(System.nanoTime() - start, Math::max);
+        }
+      } catch (SQLException e) {
+        System.err.println("Writer failed: " + e.getMessage());
+      }
+    }, "BenchBackupWriter");
+    writer.start();
+    try {
+      return task.run();
+    } finally {
+      stop.set(true);
+      writer.join();
+      maxInsertNanos[0] = max.get();
+    }
+  }
+
+  // ===== Scenario: full-text search =====
+
+  private static final String[] WORDS = {
+      "report", "meeting", "invoice", "deploy", "review", "budget", "client", "release",
+      "backup", "server", "design", "hiring", "travel", "dentist", "groceries", "taxes",
+      "birthday", "contract", "refactor", "migration", "roadmap", "workshop", "garden", "laundry" };
+
+  private static String randomText(Random random, int words) {
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < words; i++) {
+      if (i > 0) {
+        sb.append(' ');
+      }
+      sb.append(WORDS[random.nextInt(WORDS.length)]);
+    }
+    // A rare word per row gives selective queries as well as common ones
+    return sb.append(" ticket").append(random.nextInt(100_000)).toString();
+  }
+
+  private static void benchmarkSearch() throws SQLException {
+    int rows = Integer.getInteger("bench.rows", 1_000_000);
+    Utils.printLine("Full-text search vs LIKE (" + rows + " rows)");
+    try (TodoConnectionPool pool = freshPool(1, TodoDbProfile.FAST)) {
+      Random random = new Random(42);
+      long start = System.nanoTime();
+      new TodoBulkImporter(pool, 10_000).importTodos(IntStream.range(0, rows)
+          .mapToObj(i -> new Todo(randomText(random, 3), randomText(random, 8), null)));
+      System.out.printf("Seeded (with FTS triggers) in %.1f s%n", (System.nanoTime() - start) / 1e9);
+
+      String[] terms = { "ticket4242", "deploy", "migration roadmap" };
+      int repeats = 5;
+      try (Connection conn = pool.getReadConnection()) {
+        System.out.printf("%-20s %14s %14s %8s%n", "term", "LIKE (ms)", "FTS5 (ms)", "hits");
+        for (String term : terms) {
+          String like = "%" + term.split(" ")[0] + "%";
+          long likeNanos = 0;
+          try (PreparedStatement ps = conn.prepareStatement(
+              "SELECT id FROM todos WHERE title LIKE ? OR description LIKE ? LIMIT 20")) {
+            for (int r = 0; r < repeats; r++) {
+              long t = System.nanoTime();
+              ps.setString(1, like);
+              ps.setString(2, like);
+              try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                  rs.getInt(1);
+                }
+              }
+              likeNanos += System.nanoTime() - t;
+            }
+          }
+
+          long ftsNanos = 0;
+          int hits = 0;
+          for (int r = 0; r < repeats; r++) {
+            long t = System.nanoTime();
+            hits = TodoSearch.search(conn, term, 20).size();
+            ftsNanos += System.nanoTime() - t;
+          }
+          System.out.printf("%-20s %14.2f %14.2f %8d%n", term,
+              likeNanos / 1e6 / repeats, ftsNanos / 1e6 / repeats, hits);
+        }
+      }
+    }
+  }
+
+  // ===== Scenario: write-behind =====
+
+  private static void benchmarkWriteBehind() throws Exception {
+    int threads = 8;
+    int perThread = Math.max(1, ROWS / 10 / threads);
+    Utils.printLine("Write-behind (" + threads + " threads x " + perThread + " adds, durable profile)");
+
+    try (TodoConnectionPool pool = freshPool(1, TodoDbProfile.DURABLE)) {
+      TodoRepository repository = new TodoRepository(pool);
+      double seconds = runWriters(threads, () -> {
+        for (int i = 0; i < perThread; i++) {
+          repository.add(new Todo("Sync " + i, "Written synchronously", null));
+        }
+      });
+      System.out.printf("%-28s %.2f s (%.0f adds/s)%n", "synchronous add",
+          seconds, threads * perThread / seconds);
+    }
+
+    try (TodoConnectionPool pool = freshPool(1, TodoDbProfile.DURABLE)) {
+      TodoRepository repository = new TodoRepository(pool);
+      try (TodoWriteBehindQueue queue = new TodoWriteBehindQueue(repository, 10_000, 500)) {
+        double seconds = runWriters(threads, () -> {
+          List<CompletableFuture<Integer>> acks = new ArrayList<>(perThread);
+          for (int i = 0; i < perThread; i++) {
+            acks.add(queue.add(new Todo("Async " + i, "Written behind", null)));
+          }
+          CompletableFuture.allOf(acks.toArray(new CompletableFuture<?>[0])).join();
+        });
+        System.out.printf("%-28s %.2f s (%.0f adds/s, %d transactions)%n", "write-behind (acknowledged)",
+            seconds, threads * perThread / seconds, queue.getTransactionCount());
+      }
+    }
+  }
+
+  @FunctionalInterface
+  interface SqlTask {
+    void run() throws Exception;
+  }
+
+  private static double runWriters(int threads, SqlTask task) throws InterruptedException {
+    List<Thread> workers = new ArrayList<>();
+    for (int t = 0; t < threads; t++) {
+      workers.add(new Thread(() -> {
+        try {
+          task.run();
+        } catch (Exception e) {
+          System.err.println("Worker failed: " + e.getMessage());
+        }
+      }, "BenchWorker-" + t));
+    }
+    long start = System.nanoTime();
+    workers.forEach(Thread::start);
+    for (Thread t : workers) {
+      t.join();
+    }
+    return (System.nanoTime() - start) / 1_000_000_000.0;
+  }
+
+  // ===== Scenario: read-through cache =====
+
+  private static void benchmarkCache() throws SQLException {
+    int lookups = 200_000;
+    int hotSet = 500;
+    Utils.printLine("findById, " + lookups + " lookups over " + hotSet + " hot ids");
+    try (TodoConnectionPool pool = freshPool(1, TodoDbProfile.FAST)) {
+      try (Connection conn = pool.getWriteConnection()) {
+        seed(conn, Math.max(ROWS, hotSet));
+      }
+      for (int cacheSize : new int[] { 0, 100, 1_000 }) {
+        TodoRepository repository = new TodoRepository(pool, cacheSize);
+        Random random = new Random(7);
+        long start = System.nanoTime();
+        for (int i = 0; i < lookups; i++) {
+          repository.findById(1 + random.nextInt(hotSet));
+        }
+        double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+        TodoCache.CacheStats stats = repository.getCacheStats();
+        System.out.printf("cache %5d: %10.0f lookups/s, hit rate %5.1f%%, evictions %d%n",
+            cacheSize, lookups / seconds, stats.getHitRate() * 100, stats.getEvictions());
+      }
+    }
+  }
+
+  // ===== Scenario: update throughput =====
+
+  // The update path as it was before canonical statements: SQL rebuilt and prepared per call
+  private static void legacyDynamicUpdate(Connection conn, int id, TodoUpdate update) throws SQLException {
+    StringBuilder sql = new StringBuilder("UPDATE todos SET ");
+    List<String> updates = new ArrayList<>();
+    List<Object> values = new ArrayList<>();
+    if (update.getTitle() != null) {
+      updates.add("title = ?");
+      values.add(update.getTitle());
+    }
+    if (update.getDueDate() != null) {
+      updates.add("due_date = ?");
+      values.add(update.getDueDate());
+    }
+    if (update.getCompleted() != null) {
+      updates.add("completed = ?");
+      values.add(update.getCompleted() ? 1 : 0);
+    }
+    sql.append(String.join(", ", updates)).append(" WHERE id = ?");
+    try (PreparedStatement ps = conn.prepareStatement(sql.toString())) {
+      for (int i = 0; i < values.size(); i++) {
+        ps.setObject(i + 1, values.get(i));
+      }
+      ps.setInt(values.size() + 1, id);
+      ps.executeUpdate();
+    }
+  }
+
+  private static TodoUpdate updateFor(int i) {
+    switch (i % 3) {
+      case 0:
+        return new TodoUpdate().withCompleted(i % 2 == 0);
+      case 1:
+        return new TodoUpdate().withDueDate(UPDATE_DUE).withCompleted(true);
+      default:
+        return new TodoUpdate().withTitle("Renamed " + i);
+    }
+  }
+
+  private static void benchmarkUpdates() throws SQLException {
+    int rows = 10_000;
+    int updates = 100_000;
+    Utils.printLine("Update throughput (" + updates + " updates in one transaction per 1000)");
+
+    for (boolean cached : new boolean[] { false, true }) {
+      try (TodoConnectionPool pool = freshPool(1, TodoDbProfile.FAST,
+          cached ? TodoConnectionPool.DEFAULT_STATEMENT_CACHE_SIZE : 0)) {
+        TodoRepository repository = new TodoRepository(pool, 0);
+        try (Connection conn = pool.getWriteConnection()) {
+          seed(conn, rows);
+        }
+        long start = System.nanoTime();
+        try (Connection conn = pool.getWriteConnection()) {
+          conn.setAutoCommit(false);
+          for (int i = 0; i < updates; i++) {
+            int id = 1 + i % rows;
+            if (cached) {
+              repository.update(conn, id, updateFor(i));
+            } else {
+              legacyDynamicUpdate(conn, id, updateFor(i));
+            }
+            if (i % 1_000 == 999) {
+              conn.commit();
+            }
+          }
+          conn.commit();
+        }
+        double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+        System.out.printf("%-40s %10.0f updates/s  (%s)%n",
+            cached ? "canonical SQL + statement cache" : "dynamic SQL, prepared per call",
+            updates / seconds, pool.getStats().getStatementHits() + " statement cache hits");
+      }
+    }
+  }
+
+  // ===== Scenario: row mapping =====
+
+  // Row mapping as it was before TodoRowMapper: columns looked up by name on
+  // every row, plus the creation timestamp the Todo constructor used to format
+  private static Todo legacyMapByName(ResultSet rs) throws SQLException {
+    LocalDateTime.now().format(TodoDates.DISPLAY_FORMAT);
+    return Todo.of(rs.getInt("id"), rs.getString("title"), rs.getString("description"),
+        TodoDates.getMillis(rs, "due_date"), rs.getInt("completed") == 1, rs.getLong("created_at"));
+  }
+
+  private static void benchmarkRowMapping() throws Exception {
+    Utils.printLine("Row mapping (" + ROWS + " rows, " + WARMUP_ITERATIONS + " warmup + " + ITERATIONS
+        + " measured iterations)");
+    Gson gson = new Gson();
+    long[] sink = new long[1];
+    JsonWriter json = new JsonWriter(Writer.nullWriter());
+    json.setSerializeNulls(false);
+    // Every row becomes one element of a never-closed array, written to nowhere
+    json.beginArray();
+    try (TodoConnectionPool pool = freshPool(1, TodoDbProfile.FAST)) {
+      try (Connection conn = pool.getWriteConnection()) {
+        seed(conn, ROWS);
+      }
+      System.out.printf("%-28s %14s %10s%n", "mapping", "rows/s", "+/-");
+      runMapping(pool, "Todo, columns by name", rs -> sink[0] += legacyMapByName(rs).getId());
+      runMapping(pool, "Todo, resolved indexes", rs -> sink[0] += TodoRowMapper.STANDARD.map(rs).getId());
+      runMapping(pool, "JSON via Todo and Gson", rs -> gson.toJson(TodoRowMapper.STANDARD.map(rs), Todo.class, json));
+      runMapping(pool, "JSON direct", rs -> TodoRowMapper.STANDARD.writeJson(json, rs));
+    }
+    // Keeps the mapped values observable so the JIT cannot drop the work
+    if (sink[0] == 42) {
+      System.out.println();
+    }
+  }
+
+  private static void runMapping(TodoConnectionPool pool, String label, RowHandler handler) throws Exception {
+    double[] rates = new double[ITERATIONS];
+    for (int i = -WARMUP_ITERATIONS; i < ITERATIONS; i++) {
+      long rows = 0;
+      long start = System.nanoTime();
+      try (Connection conn = pool.getReadConnection();
+          Statement stmt = conn.createStatement()) {
+        stmt.setFetchSize(TodoJsonExporter.FETCH_SIZE);
+        try (ResultSet rs = stmt.executeQuery("SELECT " + TodoRowMapper.COLUMNS + " FROM todos ORDER BY id")) {
+          while (rs.next()) {
+            handler.handle(rs);
+            rows++;
+          }
+        }
+      }
+      if (i >= 0) {
+        rates[i] = rows / ((System.nanoTime() - start) / 1_000_000_000.0);
+      }
+    }
+    double mean = 0;
+    for (double rate : rates) {
+      mean += rate / rates.length;
+    }
+    double variance = 0;
+    for (double rate : rates) {
+      variance += (rate - mean) * (rate - mean) / rates.length;
+    }
+    System.out.printf("%-28s %14.0f %10.0f%n", label, mean, Math.sqrt(variance));
+  }
+
+  // ===== Scenario: in-memory storage =====
+
+  private static void benchmarkMemoryStorage() throws Exception {
+    int threads = 4;
+    int perThread = Math.max(1, ROWS / 10 / threads);
+    Utils.printLine("File vs in-memory storage (" + threads + " threads x " + perThread
+        + " adds, 4 reads per add)");
+    System.out.printf("%-24s %12s %14s%n", "storage", "adds/s", "reads/s");
+
+    for (TodoDbProfile profile : new TodoDbProfile[] { TodoDbProfile.DEFAULT, TodoDbProfile.FAST }) {
+      try (TodoConnectionPool pool = freshPool(threads, profile)) {
+        runMixedLoad("file, " + profile.name().toLowerCase(), new TodoRepository(pool, 0), threads, perThread);
+      }
+    }
+
+    deleteBenchDatabase();
+    try (TodoConnectionPool pool = new TodoConnectionPool(TodoMemoryStore.memoryUrl("todo-bench"), threads,
+        TodoDbProfile.DEFAULT)) {
+      TodoRepository repository = new TodoRepository(pool, 0);
+      try (Connection conn = pool.getWriteConnection()) {
+        TodoSchema.create(conn);
+      }
+      TodoMemoryStore store = new TodoMemoryStore(repository, Paths.get(BENCH_FILE));
+      runMixedLoad("memory", repository, threads, perThread);
+
+      long start = System.nanoTime();
+      store.checkpoint();
+      double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+      System.out.printf("checkpoint of %d rows: %,d bytes in %.3f s%n",
+          threads * perThread, Files.size(store.getFile()), seconds);
+    }
+  }
+
+  private static void runMixedLoad(String label, TodoRepository repository, int threads, int perThread)
+      throws InterruptedException {
+    double seconds = runWriters(threads, () -> {
+      Random random = new Random();
+      for (int i = 0; i < perThread; i++) {
+        int id = repository.add(new Todo("Load " + i, "Mixed load description " + i, SEED_DUE));
+        for (int r = 0; r < 4; r++) {
+          repository.findById(1 + random.nextInt(id));
+        }
+      }
+    });
+    long adds = (long) threads * perThread;
+    System.out.printf("%-24s %12.0f %14.0f%n", label, adds / seconds, adds * 4 / seconds);
+  }
+}
@@ -0,0 +1,148 @@
+package examples;
+
+import examples.JDBCOperations.Todo;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Bulk insert path for todos.
+ * Rows are buffered in chunks of batchSize and each chunk is written with
+ * PreparedStatement.addBatch inside one transaction, so SQLite syncs once per
+ * chunk instead of once per row. The writer connection is only held while a
+ * chunk is written, letting other writers interleave between chunks.
+ */
+public class TodoBulkImporter {
+  public static final int DEFAULT_BATCH_SIZE = 1_000;
+  private static final String INSERT_SQL =
+      "INSERT INTO todos (title, description, due_date, completed, created_at, completed_at) " +
+          "VALUES (?, ?, ?, ?, ?, ?)";
+  // Keeps ids and creation times; an upsert (not INSERT OR REPLACE) so the FTS triggers see an update.
+  // A row that was already completed keeps its completion time.
+  private static final String UPSERT_SQL =
+      "INSERT INTO todos (title, description, due_date, completed, created_at, completed_at, id) " +
+          "VALUES (?, ?, ?, ?, ?, ?, ?) " +
+          "ON CONFLICT (id) DO UPDATE SET title = excluded.title, description = excluded.description, " +
+          "due_date = excluded.due_date, completed = excluded.completed, created_at = excluded.created_at, " +
+          "completed_at = CASE WHEN excluded.completed = 0 THEN NULL " +
+          "WHEN todos.completed = 1 THEN todos.completed_at ELSE excluded.completed_at END";
+
+  private final TodoConnectionPool pool;
+  private final int batchSize;
+  private final boolean keepIds;
+
+  public TodoBulkImporter(TodoConnectionPool pool, int batchSize) {
+    this(pool, batchSize, false);
+  }
+
+  /**
+   * @param keepIds store each todo under its own id and creation time, replacing
+   *                an existing row with the same id (used when restoring exports)
+   */
+  public TodoBulkImporter(TodoConnectionPool pool, int batchSize, boolean keepIds) {
+    if (batchSize < 1) {
+      throw new IllegalArgumentException("batchSize must be positive: " + batchSize);
+    }
+    this.pool = pool;
+    this.batchSize = batchSize;
+    this.keepIds = keepIds;
+  }
+
+  public ImportResult importTodos(Stream<? extends Todo> todos) throws SQLException {
+    try (Stream<? extends Todo> s = todos) {
+      return importTodos(s.iterator());
+    }
+  }
+
+  public ImportResult importTodos(Iterator<? extends Todo> todos) throws SQLException {
+    long start = System.nanoTime();
+    Todo[] chunk = new Todo[batchSize];
+    long rows = 0;
+    int batches = 0;
+
+    while (todos.hasNext()) {
+      int n = 0;
+      while (n < batchSize && todos.hasNext()) {
+        chunk[n++] = todos.next();
+      }
+      try {
+        writeChunk(chunk, n);
+      } catch (SQLException e) {
+        throw new SQLException("Bulk import failed after " + rows + " committed rows: " + e.getMessage(), e);
+      }
+      rows += n;
+      batches++;
+    }
+    return new ImportResult(rows, batches, System.nanoTime() - start);
+  }
+
+  private void writeChunk(Todo[] chunk, int n) throws SQLException {
+    // Imported todos that are already completed count as completed now
+    long now = System.currentTimeMillis();
+    try (Connection conn = pool.getWriteConnection()) {
+      conn.setAutoCommit(false);
+      try (PreparedStatement ps = conn.prepareStatement(keepIds ? UPSERT_SQL : INSERT_SQL)) {
+        for (int i = 0; i < n; i++) {
+          Todo todo = chunk[i];
+          ps.setString(1, todo.getTitle());
+          ps.setString(2, todo.getDescription());
+          TodoDates.setMillis(ps, 3, todo.getDueDate());
+          ps.setInt(4, todo.isCompleted() ? 1 : 0);
+          ps.setLong(5, todo.getCreatedAt());
+          TodoDates.setMillis(ps, 6, todo.isCompleted() ? now : null);
+          if (keepIds) {
+            ps.setInt(7, todo.getId());
+          }
+          ps.addBatch();
+          chunk[i] = null;
+        }
+        ps.executeBatch();
+        conn.commit();
+      } catch (SQLException e) {
+        conn.rollback();
+        throw e;
+      } finally {
+        conn.setAutoCommit(true);
+      }
+    }
+  }
+
+  /**
+   * Outcome of one bulk import.
+   */
+  public static class ImportResult {
+    private final long rows;
+    private final int batches;
+    private final long elapsedNanos;
+
+    ImportResult(long rows, int batches, long elapsedNanos) {
+      this.rows = rows;
+      this.batches = batches;
+      this.elapsedNanos = elapsedNanos;
+    }
+
+    public long getRows() {
+      return rows;
+    }
+
+    public int getBatches() {
+      return batches;
+    }
+
+    public double getElapsedSeconds() {
+      return elapsedNanos / 1_000_000_000.0;
+    }
+
+    public double getRowsPerSecond() {
+      return elapsedNanos == 0 ? 0 : rows / getElapsedSeconds();
+    }
+
+    @Override
+    public String toString() {
+      return String.format("Imported %d rows in %d batches, %.2f s (%.0f rows/s)",
+          rows, batches, getElapsedSeconds(), getRowsPerSecond());
+    }
+  }
+}
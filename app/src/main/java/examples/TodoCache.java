@@ -0,0 +1,126 @@
+package examples;
+
+import examples.JDBCOperations.Todo;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded LRU cache of todos keyed by id, used by TodoRepository as a
+ * read-through cache in front of the todos table.
+ *
+ * A reader that missed takes a stamp before going to the database and may
+ * only store its row if nothing was invalidated in the meantime. This keeps
+ * a slow reader from caching a row that a concurrent update just replaced.
+ */
+public class TodoCache {
+  private final int capacity;
+  private final LinkedHashMap<Integer, Todo> entries;
+  private long invalidations;
+
+  private long hits;
+  private long misses;
+  private long evictions;
+
+  public TodoCache(int capacity) {
+    if (capacity < 0) {
+      throw new IllegalArgumentException("capacity must not be negative: " + capacity);
+    }
+    this.capacity = capacity;
+    // accessOrder = true turns LinkedHashMap into an LRU list
+    this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Integer, Todo> eldest) {
+        if (size() > TodoCache.this.capacity) {
+          evictions++;
+          return true;
+        }
+        return false;
+      }
+    };
+  }
+
+  public synchronized Todo get(int id) {
+    Todo todo = entries.get(id);
+    if (todo == null) {
+      misses++;
+    } else {
+      hits++;
+    }
+    return todo;
+  }
+
+  // Taken before loading a missed row from the database
+  public synchronized long stamp() {
+    return invalidations;
+  }
+
+  public synchronized void putIfFresh(Todo todo, long stamp) {
+    if (capacity > 0 && stamp == invalidations) {
+      entries.put(todo.getId(), todo);
+    }
+  }
+
+  public synchronized void invalidate(int id) {
+    invalidations++;
+    entries.remove(id);
+  }
+
+  public synchronized void invalidateAll() {
+    invalidations++;
+    entries.clear();
+  }
+
+  public synchronized CacheStats getStats() {
+    return new CacheStats(capacity, entries.size(), hits, misses, evictions);
+  }
+
+  /**
+   * Snapshot of the cache counters.
+   */
+  public static class CacheStats {
+    private final int capacity;
+    private final int size;
+    private final long hits;
+    private final long misses;
+    private final long evictions;
+
+    CacheStats(int capacity, int size, long hits, long misses, long evictions) {
+      this.capacity = capacity;
+      this.size = size;
+      this.hits = hits;
+      this.misses = misses;
+      this.evictions = evictions;
+    }
+
+    public int getCapacity() {
+      return capacity;
+    }
+
+    public int getSize() {
+      return size;
+    }
+
+    public long getHits() {
+      return hits;
+    }
+
+    public long getMisses() {
+      return misses;
+    }
+
+    public long getEvictions() {
+      return evictions;
+    }
+
+    public double getHitRate() {
+      long lookups = hits + misses;
+      return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("Cache size: %d / %d%nHits: %d%nMisses: %d%nHit rate: %.1f%%%nEvictions: %d%n",
+          size, capacity, hits, misses, getHitRate() * 100, evictions);
+    }
+  }
+}
@@ -0,0 +1,222 @@
+package examples;
+
+import com.google.gson.stream.JsonWriter;
+import examples.JDBCOperations.Todo;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Change-data-capture feed over the todos table.
+ *
+ * Triggers on todos append one row per insert, update and delete to
+ * todo_changes (see TodoSchema). Its AUTOINCREMENT seq is the feed position
+ * and never goes backwards or gets reused. A consumer remembers the last seq
+ * it has seen and asks for everything after it. The query is a range scan on
+ * the seq primary key plus one id lookup per change, so an incremental sync
+ * costs time proportional to the number of changes, not the table size.
+ *
+ * A consumer starts from a full export together with currentSequence(),
+ * read in the same snapshot, and then follows the feed. Restoring a backup
+ * replaces the change log too, so consumers should resync after a restore.
+ */
+public class TodoChangeFeed {
+  private static final String CHANGES_SQL =
+      "SELECT c.seq, c.todo_id, c.op, c.changed_at, " +
+          "t.id, t.title, t.description, t.due_date, t.completed, t.created_at " +
+          "FROM todo_changes c LEFT JOIN todos t ON t.id = c.todo_id " +
+          "WHERE c.seq > ? ORDER BY c.seq LIMIT ?";
+  // Latest change per todo in (from, to], joined to the current row
+  private static final String NET_CHANGES_SQL =
+      "SELECT c.seq, t.id, t.title, t.description, t.due_date, t.completed, t.created_at, c.todo_id " +
+          "FROM (SELECT todo_id, MAX(seq) AS seq FROM todo_changes WHERE seq > ? AND seq <= ? GROUP BY todo_id) c " +
+          "LEFT JOIN todos t ON t.id = c.todo_id ORDER BY c.seq";
+  // The todo columns start at column 5 of CHANGES_SQL and column 2 of NET_CHANGES_SQL
+  private static final TodoRowMapper CHANGE_ROW = TodoRowMapper.startingAt(5);
+  private static final TodoRowMapper NET_ROW = TodoRowMapper.startingAt(2);
+  private static final String MAX_SEQ_SQL = "SELECT COALESCE(MAX(seq), 0) FROM todo_changes";
+
+  public enum Operation {
+    INSERT, UPDATE, DELETE;
+
+    static Operation fromCode(String code) {
+      switch (code) {
+        case "I":
+          return INSERT;
+        case "U":
+          return UPDATE;
+        case "D":
+          return DELETE;
+        default:
+          throw new IllegalArgumentException("Unknown change code: " + code);
+      }
+    }
+  }
+
+  private final TodoConnectionPool pool;
+
+  public TodoChangeFeed(TodoConnectionPool pool) {
+    this.pool = pool;
+  }
+
+  /**
+   * @return the seq of the newest change, 0 if there is none
+   */
+  public long currentSequence() throws SQLException {
+    try (Connection conn = pool.getReadConnection()) {
+      return currentSequence(conn);
+    }
+  }
+
+  private static long currentSequence(Connection conn) throws SQLException {
+    try (PreparedStatement ps = conn.prepareStatement(MAX_SEQ_SQL);
+        ResultSet rs = ps.executeQuery()) {
+      rs.next();
+      return rs.getLong(1);
+    }
+  }
+
+  /**
+   * Returns up to limit changes with a seq greater than afterSeq, oldest first.
+   * Each change carries the current state of its todo, or none if the todo
+   * has since been deleted.
+   */
+  public List<TodoChange> changesSince(long afterSeq, int limit) throws SQLException {
+    List<TodoChange> changes = new ArrayList<>(Math.min(limit, 1_000));
+    try (Connection conn = pool.getReadConnection();
+        PreparedStatement ps = conn.prepareStatement(CHANGES_SQL)) {
+      ps.setLong(1, afterSeq);
+      ps.setInt(2, limit);
+      try (ResultSet rs = ps.executeQuery()) {
+        while (rs.next()) {
+          Todo todo = CHANGE_ROW.isMissing(rs) ? null : CHANGE_ROW.map(rs);
+          changes.add(new TodoChange(rs.getLong(1), rs.getInt(2), Operation.fromCode(rs.getString(3)),
+              rs.getLong(4), todo));
+        }
+      }
+    }
+    return changes;
+  }
+
+  /**
+   * Streams the net effect of all changes after afterSeq as one JSON object:
+   * {"fromSeq": n, "toSeq": m, "upserts": [todo...], "deletes": [id...]}.
+   * A todo changed several times appears once with its current state. Feed
+   * toSeq back in as afterSeq for the next sync. The stream is flushed but
+   * not closed.
+   *
+   * @return the new sequence position (toSeq)
+   */
+  public long exportChanges(OutputStream out, long afterSeq, boolean pretty) throws SQLException, IOException {
+    Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+    JsonWriter json = new JsonWriter(writer);
+    if (pretty) {
+      json.setIndent("  ");
+    }
+    json.setSerializeNulls(false);
+    json.setHtmlSafe(true);
+
+    long toSeq;
+    List<Integer> deletes = new ArrayList<>();
+    try (Connection conn = pool.getReadConnection()) {
+      // One read transaction, so toSeq and the rows come from the same snapshot
+      conn.setAutoCommit(false);
+      toSeq = currentSequence(conn);
+      json.beginObject();
+      json.name("fromSeq").value(afterSeq);
+      json.name("toSeq").value(toSeq);
+      json.name("upserts").beginArray();
+      try (PreparedStatement ps = conn.prepareStatement(NET_CHANGES_SQL)) {
+        ps.setLong(1, afterSeq);
+        ps.setLong(2, toSeq);
+        ps.setFetchSize(TodoJsonExporter.FETCH_SIZE);
+        try (ResultSet rs = ps.executeQuery()) {
+          while (rs.next()) {
+            if (NET_ROW.isMissing(rs)) {
+              deletes.add(rs.getInt(8));
+            } else {
+              NET_ROW.writeJson(json, rs);
+            }
+          }
+        }
+      }
+      json.endArray();
+    }
+    json.name("deletes").beginArray();
+    for (int id : deletes) {
+      json.value(id);
+    }
+    json.endArray();
+    json.endObject();
+    json.flush();
+    return toSeq;
+  }
+
+  /**
+   * Deletes changes up to and including upToSeq, once every consumer has read them.
+   *
+   * @return number of deleted change rows
+   */
+  public int prune(long upToSeq) throws SQLException {
+    try (Connection conn = pool.getWriteConnection();
+        Statement stmt = conn.createStatement()) {
+      return stmt.executeUpdate("DELETE FROM todo_changes WHERE seq <= " + upToSeq);
+    }
+  }
+
+  /**
+   * One entry of the change log.
+   */
+  public static class TodoChange {
+    private final long seq;
+    private final int todoId;
+    private final Operation operation;
+    private final long changedAt;
+    private final Todo todo;
+
+    TodoChange(long seq, int todoId, Operation operation, long changedAt, Todo todo) {
+      this.seq = seq;
+      this.todoId = todoId;
+      this.operation = operation;
+      this.changedAt = changedAt;
+      this.todo = todo;
+    }
+
+    public long getSeq() {
+      return seq;
+    }
+
+    public int getTodoId() {
+      return todoId;
+    }
+
+    public Operation getOperation() {
+      return operation;
+    }
+
+    // Epoch milliseconds
+    public long getChangedAt() {
+      return changedAt;
+    }
+
+    // Current state of the todo, null if it no longer exists
+    public Todo getTodo() {
+      return todo;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("#%d %s todo %d at %s", seq, operation, todoId, TodoDates.format(changedAt));
+    }
+  }
+}
@@ -0,0 +1,14 @@
+package examples;
+
+/**
+ * Notified by TodoRepository after a change to the todos table has been committed.
+ * Calls happen on the thread that made the change, so implementations should
+ * only record the change and return quickly.
+ */
+public interface TodoChangeListener {
+  // The todo with this id was added, updated or deleted
+  void todoChanged(int id);
+
+  // Many rows changed at once, e.g. after a bulk import
+  void allChanged();
+}
@@ -0,0 +1,344 @@
+package examples;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Small fixed-size connection pool for a SQLite database.
+ * SQLite allows many readers but only one writer at a time, so the pool keeps
+ * a single long-lived writer connection plus a set of read-only connections.
+ * Borrowed connections are returned to the pool when closed, so callers keep
+ * using try-with-resources exactly as with DriverManager.
+ * Each physical connection also caches its prepared statements by SQL text
+ * (see TodoStatementCache).
+ */
+public class TodoConnectionPool implements AutoCloseable {
+  public static final int DEFAULT_STATEMENT_CACHE_SIZE = 64;
+
+  private final String url;
+  private final TodoDbProfile profile;
+  private final Connection writer;
+  private final Semaphore writerPermit = new Semaphore(1, true);
+  private final BlockingQueue<Connection> readers;
+  private final List<Connection> allConnections = new ArrayList<>();
+  private final Map<Connection, TodoStatementCache> statementCaches = new IdentityHashMap<>();
+  private final int statementCacheSize;
+  private volatile boolean closed;
+
+  // Statistics
+  private final AtomicLong borrowCount = new AtomicLong();
+  private final AtomicLong borrowNanos = new AtomicLong();
+  private final AtomicLong maxBorrowNanos = new AtomicLong();
+  private final AtomicLong waitCount = new AtomicLong();
+  private final AtomicInteger inUse = new AtomicInteger();
+  private final AtomicLong statementHits = new AtomicLong();
+  private final AtomicLong statementMisses = new AtomicLong();
+
+  public TodoConnectionPool(String url, int readerCount) throws SQLException {
+    this(url, readerCount, TodoDbProfile.DEFAULT);
+  }
+
+  public TodoConnectionPool(String url, int readerCount, TodoDbProfile profile) throws SQLException {
+    this(url, readerCount, profile, DEFAULT_STATEMENT_CACHE_SIZE);
+  }
+
+  /**
+   * @param statementCacheSize prepared statements cached per connection, 0 disables caching
+   */
+  public TodoConnectionPool(String url, int readerCount, TodoDbProfile profile, int statementCacheSize)
+      throws SQLException {
+    if (readerCount < 1) {
+      throw new IllegalArgumentException("readerCount must be at least 1: " + readerCount);
+    }
+    if (statementCacheSize < 0) {
+      throw new IllegalArgumentException("statementCacheSize must not be negative: " + statementCacheSize);
+    }
+    this.url = url;
+    this.profile = profile;
+    this.statementCacheSize = statementCacheSize;
+    this.readers = new ArrayBlockingQueue<>(readerCount);
+    try {
+      this.writer = openConnection(false);
+      for (int i = 0; i < readerCount; i++) {
+        readers.add(openConnection(true));
+      }
+    } catch (SQLException e) {
+      closeAll();
+      throw e;
+    }
+  }
+
+  private Connection openConnection(boolean readOnly) throws SQLException {
+    Connection conn = DriverManager.getConnection(url);
+    allConnections.add(conn);
+    if (statementCacheSize > 0) {
+      statementCaches.put(conn, new TodoStatementCache(conn, statementCacheSize, statementHits, statementMisses));
+    }
+    profile.apply(conn);
+    if (readOnly) {
+      try (Statement stmt = conn.createStatement()) {
+        // Reject accidental writes on reader connections
+        stmt.execute("PRAGMA query_only = ON");
+      }
+    }
+    return conn;
+  }
+
+  public String getUrl() {
+    return url;
+  }
+
+  public TodoDbProfile getProfile() {
+    return profile;
+  }
+
+  public int getReaderCount() {
+    return readers.remainingCapacity() + readers.size();
+  }
+
+  /**
+   * Borrows a read-only connection. Blocks while all readers are in use.
+   */
+  public Connection getReadConnection() throws SQLException {
+    ensureOpen();
+    long start = System.nanoTime();
+    Connection conn = readers.poll();
+    if (conn == null) {
+      waitCount.incrementAndGet();
+      try {
+        conn = readers.take();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new SQLException("Interrupted while waiting for a read connection", e);
+      }
+    }
+    recordBorrow(start);
+    Connection borrowed = conn;
+    return wrap(borrowed, () -> readers.add(borrowed));
+  }
+
+  /**
+   * Borrows the single writer connection. Blocks while another caller holds it.
+   */
+  public Connection getWriteConnection() throws SQLException {
+    ensureOpen();
+    long start = System.nanoTime();
+    if (!writerPermit.tryAcquire()) {
+      waitCount.incrementAndGet();
+      try {
+        writerPermit.acquire();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new SQLException("Interrupted while waiting for the write connection", e);
+      }
+    }
+    recordBorrow(start);
+    return wrap(writer, writerPermit::release);
+  }
+
+  private void ensureOpen() throws SQLException {
+    if (closed) {
+      throw new SQLException("Connection pool is closed");
+    }
+  }
+
+  private void recordBorrow(long start) {
+    long elapsed = System.nanoTime() - start;
+    borrowCount.incrementAndGet();
+    borrowNanos.addAndGet(elapsed);
+    maxBorrowNanos.accumulateAndGet(elapsed, Math::max);
+    inUse.incrementAndGet();
+  }
+
+  private Connection wrap(Connection target, Runnable release) {
+    return (Connection) Proxy.newProxyInstance(
+        Connection.class.getClassLoader(),
+        new Class<?>[] { Connection.class },
+        new PooledConnectionHandler(target, statementCaches.get(target), release));
+  }
+
+  // Intercepts close() so the physical connection goes back to the pool
+  // and routes prepareStatement through the connection's statement cache
+  private class PooledConnectionHandler implements InvocationHandler {
+    private final Connection target;
+    private final TodoStatementCache statements;
+    private final Runnable release;
+    private boolean returned;
+
+    PooledConnectionHandler(Connection target, TodoStatementCache statements, Runnable release) {
+      this.target = target;
+      this.statements = statements;
+      this.release = release;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+      switch (method.getName()) {
+        case "close":
+          if (!returned) {
+            returned = true;
+            resetAndRelease();
+          }
+          return null;
+        case "isClosed":
+          return returned || target.isClosed();
+        case "unwrap":
+          return target.unwrap((Class<?>) args[0]);
+        default:
+          break;
+      }
+      if (returned) {
+        throw new SQLException("Connection has already been returned to the pool");
+      }
+      if (statements != null && method.getName().equals("prepareStatement")) {
+        Class<?>[] params = method.getParameterTypes();
+        if (params.length == 1) {
+          return statements.prepare((String) args[0]);
+        }
+        if (params.length == 2 && params[1] == int.class) {
+          return statements.prepare((String) args[0], (Integer) args[1]);
+        }
+      }
+      try {
+        return method.invoke(target, args);
+      } catch (InvocationTargetException e) {
+        throw e.getCause();
+      }
+    }
+
+    private void resetAndRelease() {
+      try {
+        if (statements != null) {
+          statements.reset();
+        }
+        // Never hand out a connection with a half-finished transaction
+        if (!target.getAutoCommit()) {
+          target.rollback();
+          target.setAutoCommit(true);
+        }
+      } catch (SQLException e) {
+        System.err.println("Failed to reset pooled connection: " + e.getMessage());
+      } finally {
+        inUse.decrementAndGet();
+        release.run();
+      }
+    }
+  }
+
+  public PoolStats getStats() {
+    return new PoolStats(borrowCount.get(), borrowNanos.get(), maxBorrowNanos.get(),
+        waitCount.get(), inUse.get(), getReaderCount() + 1,
+        statementHits.get(), statementMisses.get());
+  }
+
+  @Override
+  public void close() {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    closeAll();
+  }
+
+  private void closeAll() {
+    for (TodoStatementCache cache : statementCaches.values()) {
+      cache.closeAll();
+    }
+    statementCaches.clear();
+    for (Connection conn : allConnections) {
+      try {
+        conn.close();
+      } catch (SQLException e) {
+        System.err.println("Error closing pooled connection: " + e.getMessage());
+      }
+    }
+    allConnections.clear();
+  }
+
+  /**
+   * Immutable snapshot of the pool counters.
+   */
+  public static class PoolStats {
+    private final long borrowCount;
+    private final long totalBorrowNanos;
+    private final long maxBorrowNanos;
+    private final long waitCount;
+    private final int inUse;
+    private final int size;
+    private final long statementHits;
+    private final long statementMisses;
+
+    PoolStats(long borrowCount, long totalBorrowNanos, long maxBorrowNanos,
+        long waitCount, int inUse, int size, long statementHits, long statementMisses) {
+      this.borrowCount = borrowCount;
+      this.totalBorrowNanos = totalBorrowNanos;
+      this.maxBorrowNanos = maxBorrowNanos;
+      this.waitCount = waitCount;
+      this.inUse = inUse;
+      this.size = size;
+      this.statementHits = statementHits;
+      this.statementMisses = statementMisses;
+    }
+
+    public long getBorrowCount() {
+      return borrowCount;
+    }
+
+    public long getTotalBorrowNanos() {
+      return totalBorrowNanos;
+    }
+
+    public double getAverageBorrowMicros() {
+      return borrowCount == 0 ? 0 : totalBorrowNanos / 1_000.0 / borrowCount;
+    }
+
+    public double getMaxBorrowMicros() {
+      return maxBorrowNanos / 1_000.0;
+    }
+
+    public long getWaitCount() {
+      return waitCount;
+    }
+
+    public int getInUse() {
+      return inUse;
+    }
+
+    public int getSize() {
+      return size;
+    }
+
+    public long getStatementHits() {
+      return statementHits;
+    }
+
+    public long getStatementMisses() {
+      return statementMisses;
+    }
+
+    @Override
+    public String toString() {
+      return String.format(
+          "Pool size: %d (1 writer + %d readers)%nIn use: %d%nBorrows: %d%nWaits: %d%n"
+              + "Avg borrow latency: %.1f us%nMax borrow latency: %.1f us%n"
+              + "Statement cache hits: %d%nStatement cache misses: %d%n",
+          size, size - 1, inUse, borrowCount, waitCount,
+          getAverageBorrowMicros(), getMaxBorrowMicros(), statementHits, statementMisses);
+    }
+  }
+}
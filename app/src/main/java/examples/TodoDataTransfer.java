@@ -0,0 +1,643 @@
+package examples;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import examples.JDBCOperations.Todo;
+import utils.Utils;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Parallel export and import of the todos table as NDJSON or CSV.
+ *
+ * Export splits the id range into slices; worker threads each read their
+ * slice on their own pooled read connection into a part file, and the parts
+ * are concatenated in id order. Ids never change, so every row lands in
+ * exactly one slice, but each slice is its own read transaction: a row
+ * written during the export may be in the file or not depending on when its
+ * slice ran. The consistent mode (--consistent) reads the whole table in one
+ * transaction on one reader instead, giving a single point-in-time snapshot
+ * at the cost of the parallelism. Import reads
+ * records on one thread, parses chunks in parallel and feeds them in file
+ * order to a single batched writer (TodoBulkImporter keeping ids) through
+ * the repository, which invalidates its cache and notifies change listeners
+ * afterwards. Dates are written as text, as before they were stored as
+ * epoch milliseconds (see TodoRowMapper.writeJson); import also accepts the
+ * numbers that exports held for a while.
+ *
+ * Usage:
+ *   java -cp app/build/libs/app.jar examples.TodoDataTransfer export ndjson|csv &lt;file&gt; [threads] [--consistent]
+ *   java -cp app/build/libs/app.jar examples.TodoDataTransfer import ndjson|csv &lt;file&gt; [threads]
+ * The database defaults to todo.db and can be changed with -Dtodo.db=path.
+ */
+public class TodoDataTransfer {
+  private static final String CSV_HEADER = "id,title,description,due_date,completed,created_at";
+  private static final String EXPORT_SQL = "SELECT " + TodoRowMapper.COLUMNS + " FROM todos ORDER BY id";
+  private static final String SLICE_SQL =
+      "SELECT " + TodoRowMapper.COLUMNS + " FROM todos WHERE id >= ? AND id < ? ORDER BY id";
+  // Records handed to one parse task
+  private static final int PARSE_CHUNK = 2_000;
+
+  public enum Format {
+    NDJSON, CSV;
+
+    static Format fromName(String name) {
+      return valueOf(name.trim().toUpperCase(Locale.ROOT));
+    }
+  }
+
+  private final TodoRepository repository;
+  private final TodoConnectionPool pool;
+  private final int threads;
+
+  /**
+   * @param threads export workers and import parser threads
+   */
+  public TodoDataTransfer(TodoRepository repository, int threads) {
+    if (threads < 1) {
+      throw new IllegalArgumentException("threads must be positive: " + threads);
+    }
+    this.repository = repository;
+    this.pool = repository.getPool();
+    this.threads = threads;
+  }
+
+  public static void main(String[] args) throws Exception {
+    if (args.length < 3) {
+      System.out.println("Usage: TodoDataTransfer export|import ndjson|csv <file> [threads] [--consistent]");
+      return;
+    }
+    String direction = args[0];
+    Format format = Format.fromName(args[1]);
+    Path file = Paths.get(args[2]);
+    boolean consistent = args[args.length - 1].equals("--consistent");
+    int argCount = consistent ? args.length - 1 : args.length;
+    int threads = argCount > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+    String url = "jdbc:sqlite:" + System.getProperty("todo.db", "todo.db");
+
+    try (TodoConnectionPool pool = new TodoConnectionPool(url, threads, TodoDbProfile.fromSystemProperty())) {
+      try (Connection conn = pool.getWriteConnection()) {
+        TodoSchema.create(conn);
+      }
+      TodoDataTransfer transfer = new TodoDataTransfer(new TodoRepository(pool), threads);
+      TransferResult result;
+      if (direction.equals("export")) {
+        Utils.printLine("Exporting todos to " + file + " (" + format + ", "
+            + (consistent ? "one consistent snapshot" : threads + " threads") + ")");
+        result = transfer.export(format, file, consistent);
+      } else if (direction.equals("import")) {
+        Utils.printLine("Importing todos from " + file + " (" + format + ", " + threads + " threads)");
+        result = transfer.importFrom(format, file);
+      } else {
+        System.out.println("Unknown direction: " + direction);
+        return;
+      }
+      System.out.println(result);
+    }
+  }
+
+  // ===== Export =====
+
+  public TransferResult export(Format format, Path file) throws SQLException, IOException, InterruptedException {
+    return export(format, file, false);
+  }
+
+  /**
+   * @param consistent read the whole table in one transaction on one reader, so the file is a
+   *     single snapshot, instead of reading id slices in parallel
+   */
+  public TransferResult export(Format format, Path file, boolean consistent)
+      throws SQLException, IOException, InterruptedException {
+    long start = System.nanoTime();
+    long rows = consistent ? exportSnapshot(format, file) : exportSlices(format, file);
+    return new TransferResult("export", rows, Files.size(file), System.nanoTime() - start);
+  }
+
+  private long exportSlices(Format format, Path file) throws SQLException, IOException, InterruptedException {
+    int minId;
+    int maxId;
+    try (Connection conn = pool.getReadConnection();
+        Statement stmt = conn.createStatement();
+        ResultSet rs = stmt.executeQuery("SELECT MIN(id), MAX(id) FROM todos")) {
+      rs.next();
+      minId = rs.getInt(1);
+      maxId = rs.getInt(2);
+    }
+
+    // More slices than threads keeps workers busy when ids are unevenly dense
+    int slices = threads * 4;
+    long span = Math.max(1, ((long) maxId - minId + slices) / slices);
+    List<Path> parts = new ArrayList<>();
+    List<Future<Long>> results = new ArrayList<>();
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      for (long from = minId; from <= maxId; from += span) {
+        Path part = Files.createTempFile(file.toAbsolutePath().getParent(), "todos-part-", ".tmp");
+        parts.add(part);
+        long lo = from;
+        long hi = Math.min((long) maxId + 1, from + span);
+        results.add(executor.submit(() -> exportSlice(format, part, lo, hi)));
+      }
+      long rows = 0;
+      for (Future<Long> f : results) {
+        rows += getResult(f);
+      }
+
+      try (FileChannel out = FileChannel.open(file, StandardOpenOption.CREATE,
+          StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+        if (format == Format.CSV) {
+          out.write(StandardCharsets.UTF_8.encode(CSV_HEADER + "\n"));
+        }
+        for (Path part : parts) {
+          try (FileChannel in = FileChannel.open(part)) {
+            long size = in.size();
+            long position = 0;
+            while (position < size) {
+              position += in.transferTo(position, size - position, out);
+            }
+          }
+        }
+      }
+      return rows;
+    } finally {
+      executor.shutdownNow();
+      for (Path part : parts) {
+        Files.deleteIfExists(part);
+      }
+    }
+  }
+
+  private long exportSlice(Format format, Path part, long fromId, long toId) throws SQLException, IOException {
+    try (Connection conn = pool.getReadConnection();
+        PreparedStatement ps = conn.prepareStatement(SLICE_SQL);
+        Writer writer = new BufferedWriter(Files.newBufferedWriter(part, StandardCharsets.UTF_8), 64 * 1024)) {
+      ps.setLong(1, fromId);
+      ps.setLong(2, toId);
+      ps.setFetchSize(TodoJsonExporter.FETCH_SIZE);
+      long rows;
+      try (ResultSet rs = ps.executeQuery()) {
+        rows = writeRows(format, rs, writer);
+      }
+      writer.flush();
+      return rows;
+    }
+  }
+
+  private long exportSnapshot(Format format, Path file) throws SQLException, IOException {
+    try (Connection conn = pool.getReadConnection();
+        Writer writer = new BufferedWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8), 64 * 1024)) {
+      if (format == Format.CSV) {
+        writer.write(CSV_HEADER);
+        writer.write('\n');
+      }
+      // One read transaction: every row comes from the same snapshot, whatever commits meanwhile
+      conn.setAutoCommit(false);
+      long rows;
+      try (Statement stmt = conn.createStatement()) {
+        stmt.setFetchSize(TodoJsonExporter.FETCH_SIZE);
+        try (ResultSet rs = stmt.executeQuery(EXPORT_SQL)) {
+          rows = writeRows(format, rs, writer);
+        }
+        conn.commit();
+      } finally {
+        conn.setAutoCommit(true);
+      }
+      writer.flush();
+      return rows;
+    }
+  }
+
+  // One NDJSON or CSV line per row
+  private static long writeRows(Format format, ResultSet rs, Writer writer) throws SQLException, IOException {
+    JsonWriter json = null;
+    if (format == Format.NDJSON) {
+      json = new JsonWriter(writer);
+      // One top-level object per line
+      json.setLenient(true);
+      json.setSerializeNulls(false);
+    }
+    long rows = 0;
+    while (rs.next()) {
+      if (json != null) {
+        TodoRowMapper.STANDARD.writeJson(json, rs);
+      } else {
+        writeCsvRow(writer, rs);
+      }
+      writer.write('\n');
+      rows++;
+    }
+    return rows;
+  }
+
+  private static void writeCsvRow(Writer out, ResultSet rs) throws SQLException, IOException {
+    out.write(Integer.toString(rs.getInt(1)));
+    out.write(',');
+    writeCsvField(out, rs.getString(2));
+    out.write(',');
+    writeCsvField(out, rs.getString(3));
+    out.write(',');
+    writeCsvField(out, TodoDates.format(TodoDates.getMillis(rs, 4)));
+    out.write(',');
+    out.write(rs.getInt(5) == 1 ? '1' : '0');
+    out.write(',');
+    writeCsvField(out, TodoDates.formatTimestamp(rs.getLong(6)));
+  }
+
+  // RFC 4180 quoting; null is an empty field, the empty string is ""
+  static void writeCsvField(Writer out, String value) throws IOException {
+    if (value == null) {
+      return;
+    }
+    boolean quote = value.isEmpty();
+    for (int i = 0; i < value.length() && !quote; i++) {
+      char c = value.charAt(i);
+      quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+    }
+    if (!quote) {
+      out.write(value);
+      return;
+    }
+    out.write('"');
+    out.write(value.replace("\"", "\"\""));
+    out.write('"');
+  }
+
+  // ===== Import =====
+
+  /**
+   * Imports the file, replacing todos with the same id.
+   *
+   * @throws IOException if the file cannot be read or a record is malformed; the message names the record
+   */
+  public TransferResult importFrom(Format format, Path file) throws SQLException, IOException, InterruptedException {
+    long start = System.nanoTime();
+    ExecutorService parsers = Executors.newFixedThreadPool(threads);
+    // Parsed chunks in file order; bounded so the reader cannot run far ahead of the writer
+    BlockingQueue<Future<List<Todo>>> chunks = new ArrayBlockingQueue<>(threads * 4);
+    Future<List<Todo>> endOfInput = CompletableFuture.completedFuture(Collections.emptyList());
+
+    Thread reader = new Thread(() -> {
+      try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+        if (format == Format.CSV) {
+          readCsvRecord(in); // header
+        }
+        List<String> records = new ArrayList<>(PARSE_CHUNK);
+        // Number of the first record in the current chunk, counted from 1 and skipping blank lines
+        long firstRecord = 1;
+        String record;
+        while ((record = format == Format.CSV ? readCsvRecord(in) : in.readLine()) != null) {
+          if (record.isEmpty()) {
+            continue;
+          }
+          records.add(record);
+          if (records.size() == PARSE_CHUNK) {
+            List<String> batch = records;
+            long first = firstRecord;
+            chunks.put(parsers.submit(() -> parseAll(format, batch, first)));
+            records = new ArrayList<>(PARSE_CHUNK);
+            firstRecord += PARSE_CHUNK;
+          }
+        }
+        if (!records.isEmpty()) {
+          List<String> batch = records;
+          long first = firstRecord;
+          chunks.put(parsers.submit(() -> parseAll(format, batch, first)));
+        }
+      } catch (IOException e) {
+        try {
+          chunks.put(CompletableFuture.failedFuture(e));
+        } catch (InterruptedException ie) {
+          Thread.currentThread().interrupt();
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } finally {
+        try {
+          chunks.put(endOfInput);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    }, "TodoImportReader");
+    reader.start();
+
+    try {
+      Iterator<Todo> todos = new ChunkIterator(chunks, endOfInput);
+      TodoBulkImporter.ImportResult imported =
+          repository.bulkImport(todos, TodoBulkImporter.DEFAULT_BATCH_SIZE, true);
+      return new TransferResult("import", imported.getRows(), Files.size(file), System.nanoTime() - start);
+    } catch (UncheckedIOException e) {
+      // A parse failure surfacing through the iterator; its cause names the record
+      throw e.getCause();
+    } finally {
+      reader.interrupt();
+      reader.join();
+      parsers.shutdownNow();
+    }
+  }
+
+  private static List<Todo> parseAll(Format format, List<String> records, long firstRecord) throws IOException {
+    List<Todo> todos = new ArrayList<>(records.size());
+    for (int i = 0; i < records.size(); i++) {
+      try {
+        todos.add(format == Format.CSV ? parseCsv(records.get(i)) : parseJson(records.get(i)));
+      } catch (IOException | RuntimeException e) {
+        // Gson reports wrong value types as IllegalStateException or NumberFormatException
+        throw new IOException("Malformed " + format + " record " + (firstRecord + i) + ": " + e.getMessage(), e);
+      }
+    }
+    return todos;
+  }
+
+  static Todo parseJson(String line) throws IOException {
+    int id = 0;
+    String title = null;
+    String description = null;
+    Long dueDate = null;
+    boolean completed = false;
+    // Missing means imported now, like TodoSchema does for unreadable timestamps, not 1970
+    long createdAt = System.currentTimeMillis();
+    try (JsonReader json = new JsonReader(new StringReader(line))) {
+      json.beginObject();
+      while (json.hasNext()) {
+        String name = json.nextName();
+        if (json.peek() == JsonToken.NULL) {
+          json.nextNull();
+          continue;
+        }
+        switch (name) {
+          case "id":
+            id = json.nextInt();
+            break;
+          case "title":
+            title = json.nextString();
+            break;
+          case "description":
+            description = json.nextString();
+            break;
+          case "dueDate":
+            // nextString also returns numbers, as their text
+            dueDate = parseDueDate(json.nextString());
+            break;
+          case "completed":
+            completed = json.nextBoolean();
+            break;
+          case "createdAt":
+            createdAt = parseCreatedAt(json.nextString());
+            break;
+          default:
+            json.skipValue();
+        }
+      }
+      json.endObject();
+    }
+    return Todo.of(id, title, description, dueDate, completed, createdAt);
+  }
+
+  static Todo parseCsv(String record) throws IOException {
+    List<String> fields = splitCsv(record);
+    if (fields.size() != 6) {
+      throw new IOException("Expected 6 CSV fields but found " + fields.size() + ": " + record);
+    }
+    try {
+      return Todo.of(Integer.parseInt(fields.get(0)), fields.get(1), fields.get(2), parseDueDate(fields.get(3)),
+          "1".equals(fields.get(4)),
+          fields.get(5) == null ? System.currentTimeMillis() : parseCreatedAt(fields.get(5)));
+    } catch (NumberFormatException e) {
+      throw new IOException("Invalid number in CSV record: " + record, e);
+    }
+  }
+
+  // Local date-time text, or epoch milliseconds; unparseable text is dropped like the schema migration does
+  private static Long parseDueDate(String text) {
+    if (text == null) {
+      return null;
+    }
+    return isEpochMillis(text) ? Long.valueOf(text) : TodoDates.parseOrNull(text);
+  }
+
+  // UTC timestamp text, or epoch milliseconds
+  private static long parseCreatedAt(String text) throws IOException {
+    if (isEpochMillis(text)) {
+      return Long.parseLong(text);
+    }
+    Long millis = TodoDates.parseTimestampOrNull(text);
+    if (millis == null) {
+      throw new IOException("Invalid createdAt '" + text + "', expected yyyy-MM-dd HH:mm:ss");
+    }
+    return millis;
+  }
+
+  private static boolean isEpochMillis(String text) {
+    int start = text.startsWith("-") ? 1 : 0;
+    if (text.length() == start) {
+      return false;
+    }
+    for (int i = start; i < text.length(); i++) {
+      if (!Character.isDigit(text.charAt(i))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  // Splits one CSV record; an unquoted empty field is null, a quoted one is ""
+  static List<String> splitCsv(String record) {
+    List<String> fields = new ArrayList<>(6);
+    StringBuilder field = new StringBuilder();
+    boolean quoted = false;
+    boolean inQuotes = false;
+    for (int i = 0; i < record.length(); i++) {
+      char c = record.charAt(i);
+      if (inQuotes) {
+        if (c == '"') {
+          if (i + 1 < record.length() && record.charAt(i + 1) == '"') {
+            field.append('"');
+            i++;
+          } else {
+            inQuotes = false;
+          }
+        } else {
+          field.append(c);
+        }
+      } else if (c == '"') {
+        inQuotes = true;
+        quoted = true;
+      } else if (c == ',') {
+        fields.add(field.length() == 0 && !quoted ? null : field.toString());
+        field.setLength(0);
+        quoted = false;
+      } else {
+        field.append(c);
+      }
+    }
+    fields.add(field.length() == 0 && !quoted ? null : field.toString());
+    return fields;
+  }
+
+  /**
+   * Reads one CSV record, which may span lines when a quoted field contains
+   * line breaks. Records end at \n, \r\n or \r outside quotes; inside quotes
+   * every character, \r included, is kept as it is.
+   *
+   * @return the record without its line break, or null at the end of the input
+   */
+  static String readCsvRecord(BufferedReader in) throws IOException {
+    StringBuilder record = new StringBuilder();
+    boolean inQuotes = false;
+    int c;
+    while ((c = in.read()) != -1) {
+      if (c == '"') {
+        // An escaped quote ("") toggles twice
+        inQuotes = !inQuotes;
+      } else if (!inQuotes && (c == '\n' || c == '\r')) {
+        if (c == '\r') {
+          in.mark(1);
+          if (in.read() != '\n') {
+            in.reset();
+          }
+        }
+        return record.toString();
+      }
+      record.append((char) c);
+    }
+    if (inQuotes) {
+      throw new IOException("Unterminated quoted CSV field");
+    }
+    return record.length() == 0 ? null : record.toString();
+  }
+
+  private static <T> T getResult(Future<T> future) throws SQLException, IOException, InterruptedException {
+    try {
+      return future.get();
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof SQLException) {
+        throw (SQLException) cause;
+      }
+      if (cause instanceof IOException) {
+        throw (IOException) cause;
+      }
+      if (cause instanceof UncheckedIOException) {
+        throw ((UncheckedIOException) cause).getCause();
+      }
+      throw new IllegalStateException(cause);
+    }
+  }
+
+  // Flattens the ordered queue of parsed chunks for the single writer
+  private static class ChunkIterator implements Iterator<Todo> {
+    private final BlockingQueue<Future<List<Todo>>> chunks;
+    private final Future<List<Todo>> endOfInput;
+    private Iterator<Todo> current = Collections.emptyIterator();
+    private boolean done;
+
+    ChunkIterator(BlockingQueue<Future<List<Todo>>> chunks, Future<List<Todo>> endOfInput) {
+      this.chunks = chunks;
+      this.endOfInput = endOfInput;
+    }
+
+    @Override
+    public boolean hasNext() {
+      while (!current.hasNext() && !done) {
+        try {
+          Future<List<Todo>> next = chunks.take();
+          if (next == endOfInput) {
+            done = true;
+          } else {
+            current = getResult(next).iterator();
+          }
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new IllegalStateException("Interrupted while importing", e);
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        } catch (SQLException e) {
+          throw new IllegalStateException(e);
+        }
+      }
+      return current.hasNext();
+    }
+
+    @Override
+    public Todo next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      return current.next();
+    }
+  }
+
+  /**
+   * Rows and bytes moved by one export or import.
+   */
+  public static class TransferResult {
+    private final String direction;
+    private final long rows;
+    private final long bytes;
+    private final long elapsedNanos;
+
+    TransferResult(String direction, long rows, long bytes, long elapsedNanos) {
+      this.direction = direction;
+      this.rows = rows;
+      this.bytes = bytes;
+      this.elapsedNanos = elapsedNanos;
+    }
+
+    public long getRows() {
+      return rows;
+    }
+
+    public long getBytes() {
+      return bytes;
+    }
+
+    public double getElapsedSeconds() {
+      return elapsedNanos / 1_000_000_000.0;
+    }
+
+    public double getRowsPerSecond() {
+      return rows / getElapsedSeconds();
+    }
+
+    public double getMegabytesPerSecond() {
+      return bytes / 1_000_000.0 / getElapsedSeconds();
+    }
+
+    @Override
+    public String toString() {
+      return String.format("%s: %d rows, %.1f MB in %.2f s (%.0f rows/s, %.1f MB/s)",
+          direction, rows, bytes / 1_000_000.0, getElapsedSeconds(), getRowsPerSecond(),
+          getMegabytesPerSecond());
+    }
+  }
+}
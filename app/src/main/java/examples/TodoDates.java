@@ -0,0 +1,127 @@
+package examples;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoField;
+import java.time.temporal.TemporalAdjusters;
+
+/**
+ * Conversions between the stored form of todo dates (epoch milliseconds in
+ * INTEGER columns) and the local date-time text users type and read.
+ * Text is parsed once when a todo is entered and formatted only for display.
+ */
+public final class TodoDates {
+  public static final String INPUT_PATTERN = "yyyy-MM-dd[ HH:mm[:ss]]";
+  public static final DateTimeFormatter DISPLAY_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+  // Accepts "yyyy-MM-dd", "yyyy-MM-dd HH:mm" and "yyyy-MM-dd HH:mm:ss"
+  private static final DateTimeFormatter INPUT_FORMAT = new DateTimeFormatterBuilder()
+      .appendPattern(INPUT_PATTERN)
+      .parseDefaulting(ChronoField.HOUR_OF_DAY, 0)
+      .parseDefaulting(ChronoField.MINUTE_OF_HOUR, 0)
+      .parseDefaulting(ChronoField.SECOND_OF_MINUTE, 0)
+      .toFormatter();
+
+  private TodoDates() {
+    // utility
+  }
+
+  /**
+   * Parses a local date-time typed by the user.
+   *
+   * @return epoch milliseconds, or null for null or blank text
+   * @throws IllegalArgumentException if the text is not a valid date
+   */
+  public static Long parse(String text) {
+    if (text == null || text.isBlank()) {
+      return null;
+    }
+    try {
+      return toMillis(LocalDateTime.parse(text.trim(), INPUT_FORMAT));
+    } catch (DateTimeParseException e) {
+      throw new IllegalArgumentException("Invalid date '" + text.trim() + "', expected " + INPUT_PATTERN, e);
+    }
+  }
+
+  // Like parse, but returns null instead of throwing; used when migrating old free-form text
+  static Long parseOrNull(String text) {
+    try {
+      return parse(text);
+    } catch (IllegalArgumentException e) {
+      return null;
+    }
+  }
+
+  public static String format(Long millis) {
+    if (millis == null) {
+      return null;
+    }
+    return LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault()).format(DISPLAY_FORMAT);
+  }
+
+  /**
+   * Formats a creation time the way created_at was stored before it became
+   * an INTEGER: CURRENT_TIMESTAMP text, "yyyy-MM-dd HH:mm:ss" in UTC.
+   * Exports keep using it so their output does not change.
+   */
+  public static String formatTimestamp(long millis) {
+    return LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneOffset.UTC).format(DISPLAY_FORMAT);
+  }
+
+  // Reverse of formatTimestamp, null if the text is not a timestamp
+  static Long parseTimestampOrNull(String text) {
+    if (text == null) {
+      return null;
+    }
+    try {
+      return LocalDateTime.parse(text.trim(), DISPLAY_FORMAT).toInstant(ZoneOffset.UTC).toEpochMilli();
+    } catch (DateTimeParseException e) {
+      return null;
+    }
+  }
+
+  public static long toMillis(LocalDateTime dateTime) {
+    return dateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+  }
+
+  // Monday 00:00 of the week containing the given time
+  public static long startOfWeek(long millis) {
+    LocalDate day = LocalDate.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault());
+    return toMillis(day.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY)).atStartOfDay());
+  }
+
+  public static long startOfNextWeek(long millis) {
+    LocalDate day = LocalDate.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault());
+    return toMillis(day.with(TemporalAdjusters.next(DayOfWeek.MONDAY)).atStartOfDay());
+  }
+
+  // Reads a nullable INTEGER column
+  static Long getMillis(ResultSet rs, int column) throws SQLException {
+    long value = rs.getLong(column);
+    return rs.wasNull() ? null : value;
+  }
+
+  static Long getMillis(ResultSet rs, String column) throws SQLException {
+    long value = rs.getLong(column);
+    return rs.wasNull() ? null : value;
+  }
+
+  // Binds a nullable INTEGER parameter
+  static void setMillis(PreparedStatement ps, int index, Long millis) throws SQLException {
+    if (millis == null) {
+      ps.setNull(index, Types.INTEGER);
+    } else {
+      ps.setLong(index, millis);
+    }
+  }
+}
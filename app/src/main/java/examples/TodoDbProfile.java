@@ -0,0 +1,83 @@
+package examples;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Locale;
+
+/**
+ * SQLite tuning profiles for the todo database.
+ * All profiles use WAL so readers keep going while a writer commits; they
+ * differ in how much durability they trade for throughput.
+ * Select one with -Dtodo.profile=default|durable|fast.
+ */
+public enum TodoDbProfile {
+  // Balanced: survives application crashes, may lose the last commits on power loss
+  DEFAULT("NORMAL", 64L * 1024 * 1024, -16_000, 5_000),
+  // Every commit is fsynced before it returns
+  DURABLE("FULL", 0L, -16_000, 10_000),
+  // No fsync at all; for load tests and rebuildable data
+  FAST("OFF", 256L * 1024 * 1024, -64_000, 5_000);
+
+  private final String synchronous;
+  private final long mmapSize;
+  // Negative values are KiB, positive values are pages (SQLite convention)
+  private final int cacheSize;
+  private final int busyTimeoutMillis;
+
+  TodoDbProfile(String synchronous, long mmapSize, int cacheSize, int busyTimeoutMillis) {
+    this.synchronous = synchronous;
+    this.mmapSize = mmapSize;
+    this.cacheSize = cacheSize;
+    this.busyTimeoutMillis = busyTimeoutMillis;
+  }
+
+  public static TodoDbProfile fromName(String name) {
+    if (name == null || name.isBlank()) {
+      return DEFAULT;
+    }
+    return valueOf(name.trim().toUpperCase(Locale.ROOT));
+  }
+
+  public static TodoDbProfile fromSystemProperty() {
+    return fromName(System.getProperty("todo.profile"));
+  }
+
+  /**
+   * Applies the profile to a freshly opened connection.
+   * journal_mode is stored in the database file, the other pragmas are per
+   * connection, so this runs for every connection the pool opens.
+   */
+  public void apply(Connection conn) throws SQLException {
+    try (Statement stmt = conn.createStatement()) {
+      stmt.execute("PRAGMA busy_timeout = " + busyTimeoutMillis);
+      stmt.execute("PRAGMA journal_mode = WAL");
+      stmt.execute("PRAGMA synchronous = " + synchronous);
+      stmt.execute("PRAGMA mmap_size = " + mmapSize);
+      stmt.execute("PRAGMA cache_size = " + cacheSize);
+      stmt.execute("PRAGMA temp_store = MEMORY");
+    }
+  }
+
+  public String getSynchronous() {
+    return synchronous;
+  }
+
+  public long getMmapSize() {
+    return mmapSize;
+  }
+
+  public int getCacheSize() {
+    return cacheSize;
+  }
+
+  public int getBusyTimeoutMillis() {
+    return busyTimeoutMillis;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("%s (journal=WAL, synchronous=%s, mmap=%d MiB, cache=%d KiB, busy_timeout=%d ms)",
+        name().toLowerCase(Locale.ROOT), synchronous, mmapSize / (1024 * 1024), -cacheSize, busyTimeoutMillis);
+  }
+}
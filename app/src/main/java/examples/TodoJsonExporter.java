@@ -0,0 +1,73 @@
+package examples;
+
+import com.google.gson.stream.JsonWriter;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Streams the todos table as a JSON array.
+ * Rows are read with a fetch size and written one by one through Gson's
+ * JsonWriter, so memory use does not grow with the size of the table.
+ * Fields go from the result set straight to the writer (TodoRowMapper), no
+ * Todo objects are built.
+ * The field names match what Gson produces for a Todo object.
+ */
+public class TodoJsonExporter {
+  public static final int FETCH_SIZE = 500;
+  private static final String SELECT_SQL =
+      "SELECT " + TodoRowMapper.COLUMNS + " FROM todos ORDER BY id";
+
+  private final TodoConnectionPool pool;
+
+  public TodoJsonExporter(TodoConnectionPool pool) {
+    this.pool = pool;
+  }
+
+  /**
+   * Writes all todos to the stream. The stream is flushed but not closed.
+   *
+   * @return number of exported rows
+   */
+  public long export(OutputStream out, boolean pretty) throws SQLException, IOException {
+    Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+    JsonWriter json = new JsonWriter(writer);
+    if (pretty) {
+      json.setIndent("  ");
+    }
+    // Same output rules as the default Gson instance
+    json.setSerializeNulls(false);
+    json.setHtmlSafe(true);
+
+    long rows = 0;
+    try (Connection conn = pool.getReadConnection();
+        Statement stmt = conn.createStatement()) {
+      stmt.setFetchSize(FETCH_SIZE);
+      try (ResultSet rs = stmt.executeQuery(SELECT_SQL)) {
+        json.beginArray();
+        while (rs.next()) {
+          TodoRowMapper.STANDARD.writeJson(json, rs);
+          rows++;
+        }
+        json.endArray();
+      }
+    }
+    json.flush();
+    return rows;
+  }
+
+  public long exportToFile(Path file, boolean pretty) throws SQLException, IOException {
+    try (OutputStream out = Files.newOutputStream(file)) {
+      return export(out, pretty);
+    }
+  }
+}
@@ -0,0 +1,705 @@
+package examples;
+
+import com.google.gson.stream.JsonWriter;
+import examples.JDBCOperations.Todo;
+import utils.Utils;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+/**
+ * Multi-client load generator for the todo store.
+ *
+ * Reader threads run a mix of read operations (list, export) through one
+ * TodoConnectionPool, and writer threads a mix of write operations (add,
+ * update, delete), for a fixed time after a warmup. Each writer has its own
+ * connection outside the pool and runs every write as a BEGIN IMMEDIATE
+ * transaction with a short busy_timeout, so writers contend in SQLite itself
+ * rather than queueing for the pool's writer permit. Operations that fail
+ * with SQLITE_BUSY or SQLITE_LOCKED are retried with backoff and the retries
+ * are counted; other failures are counted by exception type and the first
+ * of each type is logged.
+ *
+ * Every operation is timed into a per-thread latency histogram. The report
+ * gives throughput and p50/p99/p999 latency per operation and the time the
+ * readers spent waiting for a pooled connection, as text and as JSON, so
+ * runs with different profiles or pool sizes can be compared.
+ *
+ * Usage: java -cp app/build/libs/app.jar examples.TodoLoadGenerator
+ *   -Dload.readers=4 -Dload.writers=2 -Dload.seconds=30 -Dload.warmup=5
+ *   -Dload.readMix=list:95,export:5 -Dload.writeMix=add:50,update:40,delete:10
+ *   -Dload.seedRows=10000 -Dload.busyTimeout=10 -Dload.json=todo-load.json (use - for stdout)
+ * The database defaults to todo.db (-Dtodo.db=path); -Dtodo.profile and
+ * -Dtodo.pool.statementCache select the tuning under test.
+ */
+public class TodoLoadGenerator {
+  // Attempts per operation before a busy database counts as an error
+  private static final int MAX_ATTEMPTS = 10;
+  // Kept short so a writer that finds the database locked fails and retries
+  // instead of waiting inside SQLite for up to the profile's busy_timeout
+  public static final int DEFAULT_BUSY_TIMEOUT_MILLIS = 10;
+
+  public enum Operation {
+    LIST(false), EXPORT(false), ADD(true), UPDATE(true), DELETE(true);
+
+    private final boolean write;
+
+    Operation(boolean write) {
+      this.write = write;
+    }
+
+    public boolean isWrite() {
+      return write;
+    }
+
+    static Operation fromName(String name) {
+      return valueOf(name.trim().toUpperCase(Locale.ROOT));
+    }
+  }
+
+  /**
+   * Weighted choice among operations, parsed from "op:weight,op:weight".
+   */
+  public static class OperationMix {
+    private final Operation[] operations;
+    private final int[] cumulative;
+
+    public OperationMix(Map<Operation, Integer> weights) {
+      operations = new Operation[weights.size()];
+      cumulative = new int[weights.size()];
+      int i = 0;
+      int total = 0;
+      for (Map.Entry<Operation, Integer> e : weights.entrySet()) {
+        if (e.getValue() < 0) {
+          throw new IllegalArgumentException("Negative weight for " + e.getKey());
+        }
+        total += e.getValue();
+        operations[i] = e.getKey();
+        cumulative[i++] = total;
+      }
+      if (total == 0) {
+        throw new IllegalArgumentException("Operation mix has no weight: " + weights);
+      }
+    }
+
+    public static OperationMix parse(String text) {
+      Map<Operation, Integer> weights = new EnumMap<>(Operation.class);
+      for (String part : text.split(",")) {
+        String[] pair = part.split(":");
+        if (pair.length != 2) {
+          throw new IllegalArgumentException("Expected op:weight, got '" + part + "'");
+        }
+        weights.put(Operation.fromName(pair[0]), Integer.parseInt(pair[1].trim()));
+      }
+      return new OperationMix(weights);
+    }
+
+    Operation next(ThreadLocalRandom random) {
+      int pick = random.nextInt(cumulative[cumulative.length - 1]);
+      for (int i = 0; i < cumulative.length; i++) {
+        if (pick < cumulative[i]) {
+          return operations[i];
+        }
+      }
+      return operations[operations.length - 1];
+    }
+
+    boolean contains(Operation operation) {
+      for (Operation o : operations) {
+        if (o == operation) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    @Override
+    public String toString() {
+      StringBuilder sb = new StringBuilder();
+      for (int i = 0; i < operations.length; i++) {
+        if (i > 0) {
+          sb.append(',');
+        }
+        sb.append(operations[i].name().toLowerCase(Locale.ROOT)).append(':')
+            .append(cumulative[i] - (i > 0 ? cumulative[i - 1] : 0));
+      }
+      return sb.toString();
+    }
+  }
+
+  private final TodoRepository repository;
+  private final int readers;
+  private final int writers;
+  private final OperationMix readMix;
+  private final OperationMix writeMix;
+  private final int busyTimeoutMillis;
+  // Upper bound for random ids picked by update and delete
+  private final AtomicInteger maxId = new AtomicInteger();
+  // Error types already logged once
+  private final Set<String> loggedErrors = ConcurrentHashMap.newKeySet();
+
+  public TodoLoadGenerator(TodoRepository repository, int readers, int writers, OperationMix readMix,
+      OperationMix writeMix) {
+    this(repository, readers, writers, readMix, writeMix, DEFAULT_BUSY_TIMEOUT_MILLIS);
+  }
+
+  /**
+   * @param busyTimeoutMillis busy_timeout of the writers' own connections
+   */
+  public TodoLoadGenerator(TodoRepository repository, int readers, int writers, OperationMix readMix,
+      OperationMix writeMix, int busyTimeoutMillis) {
+    if (busyTimeoutMillis < 0) {
+      throw new IllegalArgumentException("busyTimeoutMillis must not be negative: " + busyTimeoutMillis);
+    }
+    if (readers < 0 || writers < 0 || readers + writers == 0) {
+      throw new IllegalArgumentException("Need at least one client thread: " + readers + " readers, "
+          + writers + " writers");
+    }
+    for (Operation o : Operation.values()) {
+      if (readMix.contains(o) && o.isWrite()) {
+        throw new IllegalArgumentException("Read mix contains write operation " + o);
+      }
+      if (writeMix.contains(o) && !o.isWrite()) {
+        throw new IllegalArgumentException("Write mix contains read operation " + o);
+      }
+    }
+    this.repository = repository;
+    this.readers = readers;
+    this.writers = writers;
+    this.readMix = readMix;
+    this.writeMix = writeMix;
+    this.busyTimeoutMillis = busyTimeoutMillis;
+  }
+
+  public static void main(String[] args) throws Exception {
+    int readers = Integer.getInteger("load.readers", 4);
+    int writers = Integer.getInteger("load.writers", 2);
+    int seconds = Integer.getInteger("load.seconds", 30);
+    int warmup = Integer.getInteger("load.warmup", 5);
+    int seedRows = Integer.getInteger("load.seedRows", 10_000);
+    int busyTimeout = Integer.getInteger("load.busyTimeout", DEFAULT_BUSY_TIMEOUT_MILLIS);
+    OperationMix readMix = OperationMix.parse(System.getProperty("load.readMix", "list:95,export:5"));
+    OperationMix writeMix = OperationMix.parse(System.getProperty("load.writeMix", "add:50,update:40,delete:10"));
+    String json = System.getProperty("load.json", "todo-load.json");
+    String url = "jdbc:sqlite:" + System.getProperty("todo.db", "todo.db");
+    int statementCache = Integer.getInteger("todo.pool.statementCache",
+        TodoConnectionPool.DEFAULT_STATEMENT_CACHE_SIZE);
+
+    try (TodoConnectionPool pool = new TodoConnectionPool(url, Math.max(1, readers),
+        TodoDbProfile.fromSystemProperty(), statementCache)) {
+      try (Connection conn = pool.getWriteConnection()) {
+        TodoSchema.create(conn);
+      }
+      TodoRepository repository = new TodoRepository(pool);
+      TodoLoadGenerator generator = new TodoLoadGenerator(repository, readers, writers, readMix, writeMix,
+          busyTimeout);
+      Utils.printLine("Load: " + readers + " readers (" + readMix + "), " + writers + " writers (" + writeMix
+          + ", busy_timeout " + busyTimeout + " ms), " + warmup + " s warmup + " + seconds + " s, profile "
+          + pool.getProfile());
+      generator.seed(seedRows);
+      LoadResult result = generator.run(warmup * 1_000L, seconds * 1_000L);
+      System.out.println(result);
+
+      if (json.equals("-")) {
+        result.writeJson(System.out);
+      } else {
+        try (OutputStream out = Files.newOutputStream(Paths.get(json))) {
+          result.writeJson(out);
+        }
+        System.out.println("JSON report written to " + json);
+      }
+    }
+  }
+
+  /**
+   * Tops the table up to the given number of rows so reads and updates have
+   * something to work on.
+   */
+  public void seed(int rows) throws SQLException {
+    int existing = highestId();
+    if (existing < rows) {
+      repository.bulkImport(IntStream.range(existing, rows)
+          .mapToObj(i -> new Todo("Load seed " + i, "Seeded for load generation", null)).iterator(), 1_000);
+    }
+    maxId.set(Math.max(highestId(), 1));
+  }
+
+  private int highestId() throws SQLException {
+    try (Connection conn = repository.getPool().getReadConnection();
+        Statement stmt = conn.createStatement();
+        ResultSet rs = stmt.executeQuery("SELECT COALESCE(MAX(id), 0) FROM todos")) {
+      rs.next();
+      return rs.getInt(1);
+    }
+  }
+
+  /**
+   * Runs all clients for warmupMillis without recording, then for
+   * durationMillis with recording, and merges their statistics.
+   */
+  public LoadResult run(long warmupMillis, long durationMillis) throws SQLException, InterruptedException {
+    List<Connection> connections = new ArrayList<>();
+    try {
+      for (int i = 0; i < writers; i++) {
+        connections.add(openWriterConnection());
+      }
+      return run(warmupMillis, durationMillis, connections);
+    } finally {
+      for (Connection conn : connections) {
+        try {
+          conn.close();
+        } catch (SQLException e) {
+          System.err.println("Error closing writer connection: " + e.getMessage());
+        }
+      }
+    }
+  }
+
+  private LoadResult run(long warmupMillis, long durationMillis, List<Connection> writerConnections)
+      throws InterruptedException {
+    long measureStart = System.nanoTime() + warmupMillis * 1_000_000L;
+    long end = measureStart + durationMillis * 1_000_000L;
+    List<Client> clients = new ArrayList<>();
+    List<Thread> threads = new ArrayList<>();
+    for (int i = 0; i < readers + writers; i++) {
+      boolean writer = i >= readers;
+      Client client = writer ? new Client(writeMix, writerConnections.get(i - readers), measureStart, end)
+          : new Client(readMix, null, measureStart, end);
+      clients.add(client);
+      threads.add(new Thread(client, (writer ? "LoadWriter-" : "LoadReader-") + i));
+    }
+    threads.forEach(Thread::start);
+    // Pool counters are sampled around the measured part only
+    TimeUnit.NANOSECONDS.sleep(measureStart - System.nanoTime());
+    TodoConnectionPool.PoolStats before = repository.getPool().getStats();
+    for (Thread t : threads) {
+      t.join();
+    }
+    TodoConnectionPool.PoolStats after = repository.getPool().getStats();
+
+    Map<Operation, OperationStats> merged = new EnumMap<>(Operation.class);
+    for (Client client : clients) {
+      client.stats.forEach((op, stats) -> merged.computeIfAbsent(op, o -> new OperationStats()).merge(stats));
+    }
+    return new LoadResult(readers, writers, readMix, writeMix, busyTimeoutMillis, durationMillis, merged,
+        after.getBorrowCount() - before.getBorrowCount(), after.getWaitCount() - before.getWaitCount(),
+        after.getTotalBorrowNanos() - before.getTotalBorrowNanos());
+  }
+
+  // A writer's own connection: same profile as the pool, but a short busy_timeout
+  private Connection openWriterConnection() throws SQLException {
+    Connection conn = DriverManager.getConnection(repository.getPool().getUrl());
+    try {
+      repository.getPool().getProfile().apply(conn);
+      try (Statement stmt = conn.createStatement()) {
+        stmt.execute("PRAGMA busy_timeout = " + busyTimeoutMillis);
+      }
+      return conn;
+    } catch (SQLException e) {
+      conn.close();
+      throw e;
+    }
+  }
+
+  // One client thread; its statistics are only read after the thread has ended
+  private class Client implements Runnable {
+    private final OperationMix mix;
+    // The writer's own connection, null for readers
+    private final Connection conn;
+    private final long measureStart;
+    private final long end;
+    private final Map<Operation, OperationStats> stats = new EnumMap<>(Operation.class);
+
+    Client(OperationMix mix, Connection conn, long measureStart, long end) {
+      this.mix = mix;
+      this.conn = conn;
+      this.measureStart = measureStart;
+      this.end = end;
+    }
+
+    @Override
+    public void run() {
+      ThreadLocalRandom random = ThreadLocalRandom.current();
+      long now = System.nanoTime();
+      while (now < end) {
+        Operation op = mix.next(random);
+        int retries = 0;
+        // Type of the error the operation failed with, null on success
+        String error = null;
+        long start = System.nanoTime();
+        for (int attempt = 1; attempt <= MAX_ATTEMPTS; attempt++) {
+          try {
+            if (op.isWrite()) {
+              write(conn, op, random);
+            } else {
+              read(op, random);
+            }
+            break;
+          } catch (SQLException e) {
+            if (!isBusy(e) || attempt == MAX_ATTEMPTS) {
+              error = failed(op, e);
+              break;
+            }
+            retries++;
+            backoff(attempt);
+          } catch (IOException | RuntimeException e) {
+            error = failed(op, e);
+            break;
+          }
+        }
+        now = System.nanoTime();
+        if (start >= measureStart) {
+          stats.computeIfAbsent(op, o -> new OperationStats()).record(now - start, retries, error);
+        }
+      }
+    }
+  }
+
+  private void read(Operation op, ThreadLocalRandom random) throws SQLException, IOException {
+    switch (op) {
+      case LIST:
+        repository.findPage(new TodoPageQuery().withCompleted(false).afterId(random.nextInt(maxId.get())));
+        break;
+      case EXPORT:
+        repository.exportJson(OutputStream.nullOutputStream(), false);
+        break;
+      default:
+        throw new IllegalStateException("Not a read operation " + op);
+    }
+  }
+
+  // One write in its own transaction. BEGIN IMMEDIATE takes the write lock up
+  // front, so a busy database fails there, after busy_timeout, and not halfway
+  private void write(Connection conn, Operation op, ThreadLocalRandom random) throws SQLException {
+    int id;
+    try (Statement stmt = conn.createStatement()) {
+      stmt.execute("BEGIN IMMEDIATE");
+      try {
+        switch (op) {
+          case ADD:
+            id = repository.add(conn, new Todo("Load " + random.nextInt(), "Added by the load generator", null));
+            break;
+          case UPDATE:
+            id = 1 + random.nextInt(maxId.get());
+            repository.update(conn, id, random.nextBoolean()
+                ? new TodoUpdate().withCompleted(random.nextBoolean())
+                : new TodoUpdate().withTitle("Updated " + random.nextInt()));
+            break;
+          case DELETE:
+            id = 1 + random.nextInt(maxId.get());
+            repository.delete(conn, id);
+            break;
+          default:
+            throw new IllegalStateException("Not a write operation " + op);
+        }
+        stmt.execute("COMMIT");
+      } catch (SQLException | RuntimeException e) {
+        try {
+          stmt.execute("ROLLBACK");
+        } catch (SQLException rollback) {
+          e.addSuppressed(rollback);
+        }
+        throw e;
+      }
+    }
+    if (op == Operation.ADD) {
+      maxId.accumulateAndGet(id, Math::max);
+    }
+    // Same cache invalidation and change notification as the repository's own writes
+    repository.committed(id);
+  }
+
+  // Error type for the report, e.g. "SQLiteException:19"; the first error of each type is logged
+  private String failed(Operation op, Exception e) {
+    String type = e.getClass().getSimpleName();
+    if (e instanceof SQLException) {
+      type += ":" + ((SQLException) e).getErrorCode();
+    }
+    if (loggedErrors.add(type)) {
+      System.err.println("First " + type + " in " + op.name().toLowerCase(Locale.ROOT) + ": " + e.getMessage());
+    }
+    return type;
+  }
+
+  // SQLITE_BUSY (5) or SQLITE_LOCKED (6), including their extended codes
+  static boolean isBusy(SQLException e) {
+    int primary = e.getErrorCode() & 0xff;
+    return primary == 5 || primary == 6;
+  }
+
+  private static void backoff(int attempt) {
+    try {
+      Thread.sleep(Math.min(50, 1L << attempt));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Log-linear latency histogram: 16 sub-buckets per power of two, so each
+   * bucket is within about 6% of the values it holds. Recording is a
+   * couple of shifts and an array increment.
+   */
+  static class LatencyHistogram {
+    private static final int SUB_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    private final long[] counts = new long[64 * SUB_BUCKETS];
+    private long total;
+    private long max;
+
+    void record(long nanos) {
+      counts[index(Math.max(1, nanos))]++;
+      total++;
+      max = Math.max(max, nanos);
+    }
+
+    private static int index(long value) {
+      int exponent = 63 - Long.numberOfLeadingZeros(value);
+      if (exponent < SUB_BITS) {
+        return (int) value;
+      }
+      int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+      return (exponent - SUB_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    // Largest value that falls into the bucket
+    private static long upperBound(int index) {
+      if (index < SUB_BUCKETS) {
+        return index;
+      }
+      int exponent = index / SUB_BUCKETS + SUB_BITS - 1;
+      long sub = index % SUB_BUCKETS;
+      return ((SUB_BUCKETS + sub + 1) << (exponent - SUB_BITS)) - 1;
+    }
+
+    void merge(LatencyHistogram other) {
+      for (int i = 0; i < counts.length; i++) {
+        counts[i] += other.counts[i];
+      }
+      total += other.total;
+      max = Math.max(max, other.max);
+    }
+
+    // Value at or below which the given fraction of recordings fall
+    long percentile(double fraction) {
+      if (total == 0) {
+        return 0;
+      }
+      long rank = Math.max(1, (long) Math.ceil(fraction * total));
+      long seen = 0;
+      for (int i = 0; i < counts.length; i++) {
+        seen += counts[i];
+        if (seen >= rank) {
+          return Math.min(upperBound(i), max);
+        }
+      }
+      return max;
+    }
+
+    long getMax() {
+      return max;
+    }
+  }
+
+  /**
+   * Counters and latencies of one operation type.
+   */
+  public static class OperationStats {
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private long count;
+    private long errors;
+    private long busyRetries;
+    private long totalNanos;
+    // Failed operations per error type
+    private final Map<String, Long> errorTypes = new TreeMap<>();
+
+    // error is the type of error the operation failed with, null if it succeeded
+    void record(long nanos, int retries, String error) {
+      count++;
+      totalNanos += nanos;
+      busyRetries += retries;
+      if (error == null) {
+        latency.record(nanos);
+      } else {
+        errors++;
+        errorTypes.merge(error, 1L, Long::sum);
+      }
+    }
+
+    void merge(OperationStats other) {
+      latency.merge(other.latency);
+      count += other.count;
+      errors += other.errors;
+      busyRetries += other.busyRetries;
+      totalNanos += other.totalNanos;
+      other.errorTypes.forEach((type, n) -> errorTypes.merge(type, n, Long::sum));
+    }
+
+    public long getCount() {
+      return count;
+    }
+
+    public long getErrors() {
+      return errors;
+    }
+
+    public long getBusyRetries() {
+      return busyRetries;
+    }
+
+    public Map<String, Long> getErrorTypes() {
+      return errorTypes;
+    }
+
+    public double getMeanMillis() {
+      return count == 0 ? 0 : totalNanos / 1_000_000.0 / count;
+    }
+
+    // Latency of successful operations in milliseconds
+    public double getPercentileMillis(double fraction) {
+      return latency.percentile(fraction) / 1_000_000.0;
+    }
+
+    public double getMaxMillis() {
+      return latency.getMax() / 1_000_000.0;
+    }
+  }
+
+  /**
+   * Outcome of one load run.
+   */
+  public static class LoadResult {
+    private final int readers;
+    private final int writers;
+    private final OperationMix readMix;
+    private final OperationMix writeMix;
+    private final int busyTimeoutMillis;
+    private final long durationMillis;
+    private final Map<Operation, OperationStats> operations;
+    // Pooled connections borrowed during the measured time, how many of them had to wait, and for how long
+    private final long poolBorrows;
+    private final long poolWaits;
+    private final long poolWaitNanos;
+
+    LoadResult(int readers, int writers, OperationMix readMix, OperationMix writeMix, int busyTimeoutMillis,
+        long durationMillis, Map<Operation, OperationStats> operations, long poolBorrows, long poolWaits,
+        long poolWaitNanos) {
+      this.readers = readers;
+      this.writers = writers;
+      this.readMix = readMix;
+      this.writeMix = writeMix;
+      this.busyTimeoutMillis = busyTimeoutMillis;
+      this.durationMillis = durationMillis;
+      this.operations = operations;
+      this.poolBorrows = poolBorrows;
+      this.poolWaits = poolWaits;
+      this.poolWaitNanos = poolWaitNanos;
+    }
+
+    public Map<Operation, OperationStats> getOperations() {
+      return operations;
+    }
+
+    public double getThroughput(Operation operation) {
+      OperationStats stats = operations.get(operation);
+      return stats == null ? 0 : stats.getCount() * 1_000.0 / durationMillis;
+    }
+
+    public long getBusyRetries() {
+      return operations.values().stream().mapToLong(OperationStats::getBusyRetries).sum();
+    }
+
+    public long getPoolWaits() {
+      return poolWaits;
+    }
+
+    // Total time spent borrowing pooled connections, separate from the operation latencies
+    public double getPoolWaitMillis() {
+      return poolWaitNanos / 1_000_000.0;
+    }
+
+    public void writeJson(OutputStream out) throws IOException {
+      Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+      JsonWriter json = new JsonWriter(writer);
+      json.setIndent("  ");
+      json.beginObject();
+      json.name("readers").value(readers);
+      json.name("writers").value(writers);
+      json.name("readMix").value(readMix.toString());
+      json.name("writeMix").value(writeMix.toString());
+      json.name("busyTimeoutMillis").value(busyTimeoutMillis);
+      json.name("durationMillis").value(durationMillis);
+      json.name("busyRetries").value(getBusyRetries());
+      json.name("poolBorrows").value(poolBorrows);
+      json.name("poolWaits").value(poolWaits);
+      json.name("poolWaitMillis").value(getPoolWaitMillis());
+      json.name("operations").beginObject();
+      for (Map.Entry<Operation, OperationStats> e : operations.entrySet()) {
+        OperationStats s = e.getValue();
+        json.name(e.getKey().name().toLowerCase(Locale.ROOT)).beginObject();
+        json.name("count").value(s.getCount());
+        json.name("opsPerSecond").value(getThroughput(e.getKey()));
+        json.name("errors").value(s.getErrors());
+        json.name("errorTypes").beginObject();
+        for (Map.Entry<String, Long> error : s.getErrorTypes().entrySet()) {
+          json.name(error.getKey()).value(error.getValue());
+        }
+        json.endObject();
+        json.name("busyRetries").value(s.getBusyRetries());
+        json.name("meanMillis").value(s.getMeanMillis());
+        json.name("p50Millis").value(s.getPercentileMillis(0.50));
+        json.name("p99Millis").value(s.getPercentileMillis(0.99));
+        json.name("p999Millis").value(s.getPercentileMillis(0.999));
+        json.name("maxMillis").value(s.getMaxMillis());
+        json.endObject();
+      }
+      json.endObject();
+      json.endObject();
+      writer.write(System.lineSeparator());
+      writer.flush();
+    }
+
+    @Override
+    public String toString() {
+      StringBuilder sb = new StringBuilder(String.format("%-8s %10s %10s %8s %8s %9s %9s %9s %9s%n",
+          "op", "count", "ops/s", "errors", "retries", "p50 ms", "p99 ms", "p999 ms", "max ms"));
+      for (Map.Entry<Operation, OperationStats> e : operations.entrySet()) {
+        OperationStats s = e.getValue();
+        sb.append(String.format("%-8s %10d %10.0f %8d %8d %9.2f %9.2f %9.2f %9.2f%n",
+            e.getKey().name().toLowerCase(Locale.ROOT), s.getCount(), getThroughput(e.getKey()), s.getErrors(),
+            s.getBusyRetries(), s.getPercentileMillis(0.50), s.getPercentileMillis(0.99),
+            s.getPercentileMillis(0.999), s.getMaxMillis()));
+      }
+      for (Map.Entry<Operation, OperationStats> e : operations.entrySet()) {
+        e.getValue().getErrorTypes().forEach((type, n) -> sb.append(String.format("%-8s %10d %s%n",
+            e.getKey().name().toLowerCase(Locale.ROOT), n, type)));
+      }
+      sb.append(getBusyRetries()).append(" SQLITE_BUSY/LOCKED retries in total (busy_timeout ")
+          .append(busyTimeoutMillis).append(" ms)").append(System.lineSeparator());
+      sb.append(String.format("%.2f ms waiting for pooled connections (%d of %d borrows waited)",
+          getPoolWaitMillis(), poolWaits, poolBorrows));
+      return sb.toString();
+    }
+  }
+}
@@ -0,0 +1,165 @@
+package examples;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the todo store from memory and checkpoints it to a database file.
+ *
+ * The pool opens a named in-memory database (see memoryUrl), so every pool
+ * connection sees the same data. load() copies the checkpoint file into
+ * memory at startup. checkpoint() copies memory back to disk, either on a
+ * schedule (start) or at shutdown (close).
+ *
+ * Recovery rule: the last checkpoint wins. A checkpoint is written to a
+ * temporary file and renamed over the target only once it is complete. After
+ * a crash the file therefore holds the last complete checkpoint, and changes
+ * made after it are lost. Use it for load tests and rebuildable data, not as
+ * the only copy of anything.
+ */
+public class TodoMemoryStore implements AutoCloseable {
+  private final TodoRepository repository;
+  private final Path file;
+  private ScheduledExecutorService scheduler;
+  // Writer's total_changes() at the last checkpoint, -1 before the first one
+  private long checkpointedChanges = -1;
+  private long checkpointCount;
+
+  public TodoMemoryStore(TodoRepository repository, Path file) {
+    this.repository = repository;
+    this.file = file;
+  }
+
+  /**
+   * URL of a named in-memory database that all connections of this process
+   * share. It uses SQLite's memdb VFS rather than a shared-cache
+   * ":memory:" database: shared cache locks whole tables and returns
+   * SQLITE_LOCKED, which busy_timeout does not retry, whereas memdb uses
+   * normal file locking. The data exists while at least one connection is open.
+   */
+  public static String memoryUrl(String name) {
+    return "jdbc:sqlite:file:/" + name + "?vfs=memdb";
+  }
+
+  public Path getFile() {
+    return file;
+  }
+
+  public synchronized long getCheckpointCount() {
+    return checkpointCount;
+  }
+
+  /**
+   * Replaces the in-memory database with the checkpoint file, if there is
+   * one. Call it before creating the schema.
+   *
+   * @return true if a checkpoint was loaded
+   */
+  public synchronized boolean load() throws SQLException, IOException {
+    // Left over by a checkpoint that never completed; the target still holds the previous one
+    Files.deleteIfExists(tempFile());
+    if (!Files.isRegularFile(file)) {
+      return false;
+    }
+    try (Connection conn = repository.getPool().getWriteConnection();
+        Statement stmt = conn.createStatement()) {
+      stmt.executeUpdate("restore from " + TodoBackup.quote(file));
+      checkpointedChanges = totalChanges(stmt);
+    } finally {
+      repository.committedAll();
+    }
+    return true;
+  }
+
+  /**
+   * Writes the in-memory database to the checkpoint file. This holds the
+   * writer connection, so the copy is consistent and writes queue until it is
+   * done. Skipped if nothing was written since the last checkpoint.
+   *
+   * @return true if a checkpoint was written
+   */
+  public synchronized boolean checkpoint() throws SQLException, IOException {
+    Path temp = tempFile();
+    try (Connection conn = repository.getPool().getWriteConnection();
+        Statement stmt = conn.createStatement()) {
+      long changes = totalChanges(stmt);
+      if (changes == checkpointedChanges) {
+        return false;
+      }
+      Files.deleteIfExists(temp);
+      stmt.executeUpdate("backup to " + TodoBackup.quote(temp));
+      Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      checkpointedChanges = changes;
+      checkpointCount++;
+      return true;
+    } catch (SQLException | IOException e) {
+      Files.deleteIfExists(temp);
+      throw e;
+    }
+  }
+
+  // Rows changed through the writer since it was opened; every write goes through it
+  private static long totalChanges(Statement stmt) throws SQLException {
+    try (ResultSet rs = stmt.executeQuery("SELECT total_changes()")) {
+      rs.next();
+      return rs.getLong(1);
+    }
+  }
+
+  private Path tempFile() {
+    return file.resolveSibling(file.getFileName() + ".tmp");
+  }
+
+  /**
+   * Calls checkpoint() every period on a background daemon thread until close().
+   */
+  public synchronized void start(Duration period) {
+    if (scheduler != null) {
+      throw new IllegalStateException("Checkpointing is already running");
+    }
+    scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+      Thread thread = new Thread(r, "TodoCheckpoint");
+      thread.setDaemon(true);
+      return thread;
+    });
+    scheduler.scheduleWithFixedDelay(() -> {
+      try {
+        checkpoint();
+      } catch (SQLException | IOException | RuntimeException e) {
+        System.err.println("Error checkpointing todos: " + e.getMessage());
+      }
+    }, period.toMillis(), period.toMillis(), TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Stops the background checkpoints and writes a final one. Close the
+   * store before the pool.
+   */
+  @Override
+  public void close() throws SQLException, IOException {
+    ScheduledExecutorService running;
+    synchronized (this) {
+      running = scheduler;
+      scheduler = null;
+    }
+    if (running != null) {
+      running.shutdown();
+      try {
+        running.awaitTermination(30, TimeUnit.SECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    checkpoint();
+  }
+}
@@ -0,0 +1,209 @@
+package examples;
+
+import examples.JDBCOperations.Todo;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Keyset (seek) pagination over the todos table.
+ * Instead of OFFSET, each page starts after the last id of the previous page
+ * ("WHERE id > ?"), so SQLite seeks straight into the primary key or the
+ * matching index and the cost of a page does not depend on how deep it is.
+ * Queries with a due date range are ordered by (due_date, id) instead and seek
+ * on that pair, which makes them range scans over idx_todos_completed_due or
+ * idx_todos_due_date.
+ * Instances are immutable; use the with* methods to derive new queries.
+ */
+public class TodoPageQuery {
+  public static final int DEFAULT_PAGE_SIZE = 20;
+  public static final int MAX_PAGE_SIZE = 1_000;
+
+  private final int afterId;
+  // Due date of the last row of the previous page, only used for due-ordered queries
+  private final Long afterDue;
+  private final int limit;
+  private final Boolean completed;
+  private final Long dueFrom;
+  private final Long dueTo;
+
+  public TodoPageQuery() {
+    this(0, null, DEFAULT_PAGE_SIZE, null, null, null);
+  }
+
+  private TodoPageQuery(int afterId, Long afterDue, int limit, Boolean completed, Long dueFrom, Long dueTo) {
+    if (limit < 1 || limit > MAX_PAGE_SIZE) {
+      throw new IllegalArgumentException("limit must be between 1 and " + MAX_PAGE_SIZE + ": " + limit);
+    }
+    this.afterId = afterId;
+    this.afterDue = afterDue;
+    this.limit = limit;
+    this.completed = completed;
+    this.dueFrom = dueFrom;
+    this.dueTo = dueTo;
+  }
+
+  // Pending todos whose due date has passed, earliest first
+  public static TodoPageQuery overdue(long now) {
+    return new TodoPageQuery().withCompleted(false).withDueBetween(null, now);
+  }
+
+  // Pending todos due in the current calendar week (Monday to Sunday), earliest first
+  public static TodoPageQuery dueThisWeek(long now) {
+    return new TodoPageQuery().withCompleted(false)
+        .withDueBetween(TodoDates.startOfWeek(now), TodoDates.startOfNextWeek(now));
+  }
+
+  /**
+   * Cursor for id-ordered queries. Due-ordered queries need the due date of
+   * the last row as well, see afterDueAndId.
+   */
+  public TodoPageQuery afterId(int afterId) {
+    if (isOrderedByDue()) {
+      throw new IllegalStateException("Due-ordered queries page by (due date, id); use afterDueAndId");
+    }
+    return new TodoPageQuery(afterId, null, limit, completed, dueFrom, dueTo);
+  }
+
+  // Cursor for due-ordered queries: the due date and id of the last row of the previous page
+  public TodoPageQuery afterDueAndId(long afterDue, int afterId) {
+    if (!isOrderedByDue()) {
+      throw new IllegalStateException("Only due-ordered queries page by (due date, id); use afterId");
+    }
+    return new TodoPageQuery(afterId, afterDue, limit, completed, dueFrom, dueTo);
+  }
+
+  public TodoPageQuery withLimit(int limit) {
+    return new TodoPageQuery(afterId, afterDue, limit, completed, dueFrom, dueTo);
+  }
+
+  // null means "any status"
+  public TodoPageQuery withCompleted(Boolean completed) {
+    return new TodoPageQuery(afterId, afterDue, limit, completed, dueFrom, dueTo);
+  }
+
+  // Due date range in epoch milliseconds, from inclusive and to exclusive; either bound may be null
+  public TodoPageQuery withDueBetween(Long dueFrom, Long dueTo) {
+    if (afterId != 0 && (afterDue == null) == (dueFrom != null || dueTo != null)) {
+      // The cursor belongs to the other ordering and would be silently dropped or misread
+      throw new IllegalStateException("Set the due date range before the page cursor");
+    }
+    return new TodoPageQuery(afterId, afterDue, limit, completed, dueFrom, dueTo);
+  }
+
+  public int getAfterId() {
+    return afterId;
+  }
+
+  public int getLimit() {
+    return limit;
+  }
+
+  private boolean isOrderedByDue() {
+    return dueFrom != null || dueTo != null;
+  }
+
+  String toSql() {
+    StringBuilder sql = new StringBuilder("SELECT " + TodoRowMapper.COLUMNS + " FROM todos WHERE ");
+    boolean byDue = isOrderedByDue();
+    if (!byDue) {
+      sql.append("id > ?");
+    } else if (afterDue != null) {
+      // Row value comparison seeks to the cursor inside the (due_date, id) index order
+      sql.append("(due_date, id) > (?, ?)");
+    } else {
+      sql.append("due_date IS NOT NULL");
+    }
+    if (completed != null) {
+      sql.append(" AND completed = ?");
+    }
+    if (dueFrom != null) {
+      sql.append(" AND due_date >= ?");
+    }
+    if (dueTo != null) {
+      sql.append(" AND due_date < ?");
+    }
+    // One extra row tells us whether another page exists
+    sql.append(byDue ? " ORDER BY due_date, id LIMIT ?" : " ORDER BY id LIMIT ?");
+    return sql.toString();
+  }
+
+  public TodoPage fetch(Connection conn) throws SQLException {
+    try (PreparedStatement ps = conn.prepareStatement(toSql())) {
+      int i = 1;
+      if (!isOrderedByDue()) {
+        ps.setInt(i++, afterId);
+      } else if (afterDue != null) {
+        ps.setLong(i++, afterDue);
+        ps.setInt(i++, afterId);
+      }
+      if (completed != null) {
+        ps.setInt(i++, completed ? 1 : 0);
+      }
+      if (dueFrom != null) {
+        ps.setLong(i++, dueFrom);
+      }
+      if (dueTo != null) {
+        ps.setLong(i++, dueTo);
+      }
+      ps.setInt(i, limit + 1);
+
+      List<Todo> items = new ArrayList<>(limit);
+      boolean hasMore = false;
+      try (ResultSet rs = ps.executeQuery()) {
+        while (rs.next()) {
+          if (items.size() == limit) {
+            hasMore = true;
+            break;
+          }
+          items.add(TodoRowMapper.STANDARD.map(rs));
+        }
+      }
+      return new TodoPage(this, items, hasMore);
+    }
+  }
+
+  // Cursor for the page after the given last row
+  private TodoPageQuery after(Todo last) {
+    if (!isOrderedByDue()) {
+      return afterId(last.getId());
+    }
+    return afterDueAndId(last.getDueDate(), last.getId());
+  }
+
+  /**
+   * One page of results plus the cursor for the next page.
+   */
+  public static class TodoPage {
+    private final TodoPageQuery query;
+    private final List<Todo> items;
+    private final boolean hasMore;
+
+    TodoPage(TodoPageQuery query, List<Todo> items, boolean hasMore) {
+      this.query = query;
+      this.items = Collections.unmodifiableList(items);
+      this.hasMore = hasMore;
+    }
+
+    public List<Todo> getItems() {
+      return items;
+    }
+
+    public boolean hasMore() {
+      return hasMore;
+    }
+
+    // Last id on this page, the cursor for the next one
+    public int getLastId() {
+      return items.isEmpty() ? query.getAfterId() : items.get(items.size() - 1).getId();
+    }
+
+    public TodoPageQuery nextQuery() {
+      return items.isEmpty() ? query : query.after(items.get(items.size() - 1));
+    }
+  }
+}
@@ -0,0 +1,539 @@
+package examples;
+
+import examples.JDBCOperations.Todo;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Fires a callback when a pending todo comes due.
+ *
+ * Pending todos with a future due date are loaded once into an in-memory
+ * min-heap ordered by due time; a single thread sleeps until the earliest one
+ * and fires it. The scheduler registers itself as a TodoChangeListener, so
+ * adds, updates, completions and deletes made through the repository (or its
+ * write-behind queue) reschedule the affected todo without polling the table.
+ *
+ * Todos that are already overdue when loaded or changed are not fired; a
+ * reminder means the due time passed while the scheduler was running.
+ *
+ * Time comes from a Clock. Tests pass their own and drive the scheduler
+ * with runOnce() instead of starting the thread.
+ */
+public class TodoReminderScheduler implements TodoChangeListener, AutoCloseable {
+  private static final String PENDING_SQL =
+      "SELECT id, due_date FROM todos WHERE completed = 0 AND due_date > ?";
+  /**
+   * Receives due todos on the scheduler thread.
+   */
+  @FunctionalInterface
+  public interface ReminderListener {
+    void reminderDue(int todoId, long dueEpochMillis);
+  }
+
+  private final TodoRepository repository;
+  private final ReminderListener listener;
+  private final Clock clock;
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition wakeUp = lock.newCondition();
+  private final ReminderHeap heap = new ReminderHeap();
+  // Changed ids waiting to be re-read, guarded by lock
+  private List<Integer> dirty = new ArrayList<>();
+  private boolean reloadAll;
+  private boolean closed;
+  private long fired;
+  // null when driven by runOnce()
+  private final Thread thread;
+
+  /**
+   * Loads the pending todos and starts the scheduler thread.
+   */
+  public TodoReminderScheduler(TodoRepository repository, ReminderListener listener) throws SQLException {
+    this(repository, listener, Clock.systemDefaultZone(), true);
+  }
+
+  /**
+   * @param startThread false to leave the scheduler to explicit runOnce() calls
+   */
+  TodoReminderScheduler(TodoRepository repository, ReminderListener listener, Clock clock, boolean startThread)
+      throws SQLException {
+    this.repository = repository;
+    this.listener = listener;
+    this.clock = clock;
+    // Listen first so changes made while loading are re-read afterwards
+    repository.addChangeListener(this);
+    try {
+      loadAll();
+    } catch (SQLException | RuntimeException e) {
+      repository.removeChangeListener(this);
+      throw e;
+    }
+    if (startThread) {
+      this.thread = new Thread(this::run, "TodoReminders");
+      this.thread.setDaemon(true);
+      this.thread.start();
+    } else {
+      this.thread = null;
+    }
+  }
+
+  // ===== TodoChangeListener =====
+
+  @Override
+  public void todoChanged(int id) {
+    lock.lock();
+    try {
+      dirty.add(id);
+      wakeUp.signal();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public void allChanged() {
+    lock.lock();
+    try {
+      reloadAll = true;
+      wakeUp.signal();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  // ===== Statistics =====
+
+  public int getScheduledCount() {
+    lock.lock();
+    try {
+      return heap.size();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  public long getFiredCount() {
+    lock.lock();
+    try {
+      return fired;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * @return due time of the next reminder, if any is scheduled
+   */
+  public Optional<LocalDateTime> getNextDue() {
+    lock.lock();
+    try {
+      if (heap.isEmpty()) {
+        return Optional.empty();
+      }
+      return Optional.of(LocalDateTime.ofInstant(Instant.ofEpochMilli(heap.peekDue()), clock.getZone()));
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  // ===== Scheduler thread =====
+
+  private void run() {
+    while (true) {
+      lock.lock();
+      try {
+        awaitWork();
+        if (closed) {
+          return;
+        }
+      } catch (InterruptedException e) {
+        return;
+      } finally {
+        lock.unlock();
+      }
+      runOnce();
+    }
+  }
+
+  /**
+   * Applies the changes reported since the last call, then fires the
+   * reminders due at the clock's current time. The scheduler thread calls
+   * this each time it wakes up; tests without the thread call it directly.
+   */
+  void runOnce() {
+    List<Integer> changed;
+    boolean reload;
+    lock.lock();
+    try {
+      reload = reloadAll;
+      reloadAll = false;
+      changed = dirty;
+      dirty = new ArrayList<>();
+    } finally {
+      lock.unlock();
+    }
+
+    // Apply changes before firing, so a todo completed just now is not reminded
+    try {
+      if (reload) {
+        loadAll();
+      } else if (!changed.isEmpty()) {
+        refresh(changed);
+      }
+    } catch (SQLException e) {
+      System.err.println("Error refreshing reminders: " + e.getMessage());
+    }
+    fireDue();
+  }
+
+  // Sleeps until something changed or the earliest reminder is due
+  private void awaitWork() throws InterruptedException {
+    while (!closed && dirty.isEmpty() && !reloadAll) {
+      if (heap.isEmpty()) {
+        wakeUp.await();
+        continue;
+      }
+      long delay = heap.peekDue() - clock.millis();
+      if (delay <= 0) {
+        return;
+      }
+      wakeUp.await(delay, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  private void fireDue() {
+    while (true) {
+      int id;
+      long due;
+      lock.lock();
+      try {
+        if (closed || heap.isEmpty() || heap.peekDue() > clock.millis()) {
+          return;
+        }
+        id = heap.peekId();
+        due = heap.peekDue();
+        heap.remove(id);
+        fired++;
+      } finally {
+        lock.unlock();
+      }
+      // Outside the lock so a slow callback does not block change notifications
+      try {
+        listener.reminderDue(id, due);
+      } catch (RuntimeException e) {
+        System.err.println("Reminder callback failed for todo " + id + ": " + e.getMessage());
+      }
+    }
+  }
+
+  private void loadAll() throws SQLException {
+    int[] ids = new int[1024];
+    long[] dues = new long[1024];
+    int count = 0;
+    try (Connection conn = repository.getPool().getReadConnection();
+        PreparedStatement ps = conn.prepareStatement(PENDING_SQL)) {
+      // A range scan over idx_todos_completed_due
+      ps.setLong(1, clock.millis());
+      ps.setFetchSize(TodoJsonExporter.FETCH_SIZE);
+      try (ResultSet rs = ps.executeQuery()) {
+        while (rs.next()) {
+          long due = rs.getLong(2);
+          if (count == ids.length) {
+            ids = Arrays.copyOf(ids, count * 2);
+            dues = Arrays.copyOf(dues, count * 2);
+          }
+          ids[count] = rs.getInt(1);
+          dues[count] = due;
+          count++;
+        }
+      }
+    }
+    lock.lock();
+    try {
+      heap.load(ids, dues, count);
+      wakeUp.signal();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void refresh(List<Integer> ids) throws SQLException {
+    for (int id : ids) {
+      Optional<Todo> todo = repository.findById(id);
+      Long due = todo.filter(t -> !t.isCompleted()).map(Todo::getDueDate).orElse(null);
+      lock.lock();
+      try {
+        // An already scheduled todo moved into the past fires right away;
+        // anything else that is overdue is dropped
+        if (due != null && (due > clock.millis() || heap.contains(id))) {
+          heap.schedule(id, due);
+        } else {
+          heap.remove(id);
+        }
+      } finally {
+        lock.unlock();
+      }
+    }
+  }
+
+  /**
+   * Stops the scheduler thread. Reminders that have not fired are dropped.
+   */
+  @Override
+  public void close() {
+    repository.removeChangeListener(this);
+    lock.lock();
+    try {
+      if (closed) {
+        return;
+      }
+      closed = true;
+      wakeUp.signal();
+    } finally {
+      lock.unlock();
+    }
+    if (thread == null) {
+      return;
+    }
+    try {
+      thread.join(TimeUnit.SECONDS.toMillis(5));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Binary min-heap of (due time, todo id) kept in parallel primitive arrays,
+   * with an id to slot index so rescheduling and removal are O(log n).
+   * A million reminders take about 30 MB and no boxed objects. Not thread-safe.
+   */
+  static final class ReminderHeap {
+    private long[] due = new long[16];
+    private int[] ids = new int[16];
+    private int size;
+    private final IntIntMap slots = new IntIntMap();
+
+    int size() {
+      return size;
+    }
+
+    boolean isEmpty() {
+      return size == 0;
+    }
+
+    long peekDue() {
+      return due[0];
+    }
+
+    int peekId() {
+      return ids[0];
+    }
+
+    boolean contains(int id) {
+      return slots.get(id) >= 0;
+    }
+
+    // Adds the todo or moves it to a new due time
+    void schedule(int id, long at) {
+      int slot = slots.get(id);
+      if (slot < 0) {
+        if (size == ids.length) {
+          ids = Arrays.copyOf(ids, size * 2);
+          due = Arrays.copyOf(due, size * 2);
+        }
+        slot = size++;
+        set(slot, id, at);
+        siftUp(slot);
+      } else {
+        due[slot] = at;
+        if (siftDown(slot) == slot) {
+          siftUp(slot);
+        }
+      }
+    }
+
+    boolean remove(int id) {
+      int slot = slots.remove(id);
+      if (slot < 0) {
+        return false;
+      }
+      int last = --size;
+      if (slot != last) {
+        set(slot, ids[last], due[last]);
+        if (siftDown(slot) == slot) {
+          siftUp(slot);
+        }
+      }
+      return true;
+    }
+
+    // Replaces the contents and heapifies in O(n)
+    void load(int[] newIds, long[] newDue, int count) {
+      int capacity = Math.max(16, count);
+      ids = Arrays.copyOf(newIds, capacity);
+      due = Arrays.copyOf(newDue, capacity);
+      size = count;
+      slots.clear(count);
+      for (int i = 0; i < count; i++) {
+        slots.put(ids[i], i);
+      }
+      for (int i = (count >>> 1) - 1; i >= 0; i--) {
+        siftDown(i);
+      }
+    }
+
+    private boolean less(int a, int b) {
+      return due[a] < due[b] || (due[a] == due[b] && ids[a] < ids[b]);
+    }
+
+    private void siftUp(int slot) {
+      while (slot > 0) {
+        int parent = (slot - 1) >>> 1;
+        if (!less(slot, parent)) {
+          break;
+        }
+        swap(slot, parent);
+        slot = parent;
+      }
+    }
+
+    private int siftDown(int slot) {
+      while (true) {
+        int child = 2 * slot + 1;
+        if (child >= size) {
+          return slot;
+        }
+        if (child + 1 < size && less(child + 1, child)) {
+          child++;
+        }
+        if (!less(child, slot)) {
+          return slot;
+        }
+        swap(slot, child);
+        slot = child;
+      }
+    }
+
+    private void swap(int a, int b) {
+      int id = ids[a];
+      long at = due[a];
+      set(a, ids[b], due[b]);
+      set(b, id, at);
+    }
+
+    private void set(int slot, int id, long at) {
+      ids[slot] = id;
+      due[slot] = at;
+      slots.put(id, slot);
+    }
+  }
+
+  /**
+   * Open-addressing int to int map with linear probing; values are
+   * non-negative and -1 marks an empty bucket.
+   */
+  static final class IntIntMap {
+    private int[] keys = new int[32];
+    private int[] values = newValues(32);
+    private int size;
+
+    private static int[] newValues(int capacity) {
+      int[] values = new int[capacity];
+      Arrays.fill(values, -1);
+      return values;
+    }
+
+    private static int hash(int key) {
+      int h = key * 0x9E3779B9;
+      return h ^ (h >>> 16);
+    }
+
+    int get(int key) {
+      int mask = keys.length - 1;
+      for (int i = hash(key) & mask; values[i] >= 0; i = (i + 1) & mask) {
+        if (keys[i] == key) {
+          return values[i];
+        }
+      }
+      return -1;
+    }
+
+    void put(int key, int value) {
+      int mask = keys.length - 1;
+      int i = hash(key) & mask;
+      for (; values[i] >= 0; i = (i + 1) & mask) {
+        if (keys[i] == key) {
+          values[i] = value;
+          return;
+        }
+      }
+      keys[i] = key;
+      values[i] = value;
+      // Keep the table at most half full
+      if (++size * 2 > keys.length) {
+        resize(keys.length * 2);
+      }
+    }
+
+    // Returns the removed value or -1
+    int remove(int key) {
+      int mask = keys.length - 1;
+      int hole = hash(key) & mask;
+      while (values[hole] >= 0 && keys[hole] != key) {
+        hole = (hole + 1) & mask;
+      }
+      int removed = values[hole];
+      if (removed < 0) {
+        return -1;
+      }
+      // Backward-shift deletion: pull later entries of the probe run into the hole
+      for (int j = (hole + 1) & mask; values[j] >= 0; j = (j + 1) & mask) {
+        int home = hash(keys[j]) & mask;
+        boolean canMove = hole < j ? (home <= hole || home > j) : (home <= hole && home > j);
+        if (canMove) {
+          keys[hole] = keys[j];
+          values[hole] = values[j];
+          hole = j;
+        }
+      }
+      values[hole] = -1;
+      size--;
+      return removed;
+    }
+
+    // Empties the map, sized for the given number of entries
+    void clear(int expected) {
+      int capacity = 32;
+      while (capacity < expected * 2) {
+        capacity <<= 1;
+      }
+      keys = new int[capacity];
+      values = newValues(capacity);
+      size = 0;
+    }
+
+    private void resize(int capacity) {
+      int[] oldKeys = keys;
+      int[] oldValues = values;
+      keys = new int[capacity];
+      values = newValues(capacity);
+      size = 0;
+      for (int i = 0; i < oldKeys.length; i++) {
+        if (oldValues[i] >= 0) {
+          put(oldKeys[i], oldValues[i]);
+        }
+      }
+    }
+  }
+}
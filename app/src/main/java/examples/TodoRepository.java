@@ -0,0 +1,284 @@
+package examples;
+
+import examples.JDBCOperations.Todo;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Programmatic API over the todos table.
+ * Reads use the pool's reader connections and writes use its single writer.
+ * findById is served through a bounded LRU cache that update and delete
+ * invalidate once their change is committed; registered TodoChangeListeners
+ * are told about the change at the same point.
+ * The package-private Connection overloads let TodoWriteBehindQueue run
+ * several mutations inside one transaction.
+ */
+public class TodoRepository {
+  public static final int DEFAULT_CACHE_SIZE = 1_000;
+
+  private static final String SELECT_BY_ID_SQL =
+      "SELECT " + TodoRowMapper.COLUMNS + " FROM todos WHERE id = ?";
+  private static final String INSERT_SQL =
+      "INSERT INTO todos (title, description, due_date, completed, created_at, completed_at) " +
+          "VALUES (?, ?, ?, ?, ?, ?)";
+  private static final String DELETE_SQL = "DELETE FROM todos WHERE id = ?";
+  // Fixed statements for partial updates: a null parameter keeps the current value.
+  // Using the same SQL text every time lets the pool's statement cache reuse them.
+  // completed_at is stamped when completed flips to 1, cleared when it goes back to 0 and kept otherwise.
+  private static final String SET_COMPLETED_SQL = "completed = COALESCE(?, completed), " +
+      "completed_at = CASE WHEN COALESCE(?, completed) = 0 THEN NULL WHEN completed = 1 THEN completed_at ELSE ? END";
+  private static final String UPDATE_ALL_SQL =
+      "UPDATE todos SET title = COALESCE(?, title), description = COALESCE(?, description), " +
+          "due_date = COALESCE(?, due_date), " + SET_COMPLETED_SQL + " WHERE id = ?";
+  private static final String UPDATE_STATUS_SQL =
+      "UPDATE todos SET due_date = COALESCE(?, due_date), " + SET_COMPLETED_SQL + " WHERE id = ?";
+
+  private final TodoConnectionPool pool;
+  private final TodoCache cache;
+  private final List<TodoChangeListener> listeners = new CopyOnWriteArrayList<>();
+
+  public TodoRepository(TodoConnectionPool pool) {
+    this(pool, DEFAULT_CACHE_SIZE);
+  }
+
+  /**
+   * @param cacheSize maximum number of todos kept in the read-through cache, 0 disables it
+   */
+  public TodoRepository(TodoConnectionPool pool, int cacheSize) {
+    this.pool = pool;
+    this.cache = new TodoCache(cacheSize);
+  }
+
+  public TodoConnectionPool getPool() {
+    return pool;
+  }
+
+  public TodoCache.CacheStats getCacheStats() {
+    return cache.getStats();
+  }
+
+  public void addChangeListener(TodoChangeListener listener) {
+    listeners.add(listener);
+  }
+
+  public void removeChangeListener(TodoChangeListener listener) {
+    listeners.remove(listener);
+  }
+
+  // ===== Reads =====
+
+  /**
+   * Looks a todo up by id, serving hot rows from the cache.
+   * The returned object is a copy and may be modified freely.
+   */
+  public Optional<Todo> findById(int id) throws SQLException {
+    Todo cached = cache.get(id);
+    if (cached != null) {
+      return Optional.of(cached.copy());
+    }
+    long stamp = cache.stamp();
+    try (Connection conn = pool.getReadConnection();
+        PreparedStatement ps = conn.prepareStatement(SELECT_BY_ID_SQL)) {
+      ps.setInt(1, id);
+      try (ResultSet rs = ps.executeQuery()) {
+        if (!rs.next()) {
+          return Optional.empty();
+        }
+        Todo todo = TodoRowMapper.STANDARD.map(rs);
+        cache.putIfFresh(todo, stamp);
+        return Optional.of(todo.copy());
+      }
+    }
+  }
+
+  // Called after a change to the row has been committed
+  void committed(int id) {
+    cache.invalidate(id);
+    for (TodoChangeListener listener : listeners) {
+      try {
+        listener.todoChanged(id);
+      } catch (RuntimeException e) {
+        System.err.println("Todo change listener failed: " + e.getMessage());
+      }
+    }
+  }
+
+  // Called after a change to many rows has been committed
+  void committedAll() {
+    cache.invalidateAll();
+    for (TodoChangeListener listener : listeners) {
+      try {
+        listener.allChanged();
+      } catch (RuntimeException e) {
+        System.err.println("Todo change listener failed: " + e.getMessage());
+      }
+    }
+  }
+
+  public TodoPageQuery.TodoPage findPage(TodoPageQuery query) throws SQLException {
+    try (Connection conn = pool.getReadConnection()) {
+      return query.fetch(conn);
+    }
+  }
+
+  public List<Todo> search(String text, int limit) throws SQLException {
+    try (Connection conn = pool.getReadConnection()) {
+      return TodoSearch.search(conn, text, limit);
+    }
+  }
+
+  public long exportJson(OutputStream out, boolean pretty) throws SQLException, IOException {
+    return new TodoJsonExporter(pool).export(out, pretty);
+  }
+
+  public long exportJson(Path file, boolean pretty) throws SQLException, IOException {
+    return new TodoJsonExporter(pool).exportToFile(file, pretty);
+  }
+
+  public List<TodoChangeFeed.TodoChange> changesSince(long afterSeq, int limit) throws SQLException {
+    return new TodoChangeFeed(pool).changesSince(afterSeq, limit);
+  }
+
+  /**
+   * Writes the todos changed after afterSeq as JSON; see TodoChangeFeed.exportChanges.
+   *
+   * @return the sequence number to pass as afterSeq next time
+   */
+  public long exportChangesJson(OutputStream out, long afterSeq, boolean pretty) throws SQLException, IOException {
+    return new TodoChangeFeed(pool).exportChanges(out, afterSeq, pretty);
+  }
+
+  // ===== Writes =====
+
+  /**
+   * Inserts a todo and returns its generated id.
+   */
+  public int add(Todo todo) throws SQLException {
+    int id;
+    try (Connection conn = pool.getWriteConnection()) {
+      id = add(conn, todo);
+    }
+    committed(id);
+    return id;
+  }
+
+  /**
+   * Applies the non-null fields of the update.
+   *
+   * @return false if no todo has that id
+   */
+  public boolean update(int id, TodoUpdate update) throws SQLException {
+    boolean changed;
+    try (Connection conn = pool.getWriteConnection()) {
+      changed = update(conn, id, update);
+    } finally {
+      // Even on failure: a reader may have cached the row while the statement ran
+      cache.invalidate(id);
+    }
+    if (changed) {
+      committed(id);
+    }
+    return changed;
+  }
+
+  /**
+   * @return false if no todo has that id
+   */
+  public boolean delete(int id) throws SQLException {
+    boolean deleted;
+    try (Connection conn = pool.getWriteConnection()) {
+      deleted = delete(conn, id);
+    } finally {
+      cache.invalidate(id);
+    }
+    if (deleted) {
+      committed(id);
+    }
+    return deleted;
+  }
+
+  public TodoBulkImporter.ImportResult bulkImport(Iterator<? extends Todo> todos, int batchSize)
+      throws SQLException {
+    return bulkImport(todos, batchSize, false);
+  }
+
+  /**
+   * @param keepIds store todos under their own ids, replacing existing rows (see TodoBulkImporter)
+   */
+  public TodoBulkImporter.ImportResult bulkImport(Iterator<? extends Todo> todos, int batchSize, boolean keepIds)
+      throws SQLException {
+    try {
+      return new TodoBulkImporter(pool, batchSize, keepIds).importTodos(todos);
+    } finally {
+      committedAll();
+    }
+  }
+
+  int add(Connection conn, Todo todo) throws SQLException {
+    try (PreparedStatement ps = conn.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS)) {
+      ps.setString(1, todo.getTitle());
+      ps.setString(2, todo.getDescription());
+      TodoDates.setMillis(ps, 3, todo.getDueDate());
+      ps.setInt(4, todo.isCompleted() ? 1 : 0);
+      ps.setLong(5, todo.getCreatedAt());
+      TodoDates.setMillis(ps, 6, todo.isCompleted() ? System.currentTimeMillis() : null);
+      ps.executeUpdate();
+      try (ResultSet keys = ps.getGeneratedKeys()) {
+        if (!keys.next()) {
+          throw new SQLException("Insert did not return a generated id");
+        }
+        return keys.getInt(1);
+      }
+    }
+  }
+
+  boolean update(Connection conn, int id, TodoUpdate update) throws SQLException {
+    if (update.isEmpty()) {
+      throw new IllegalArgumentException("Update has no fields to change");
+    }
+    // Only touch title/description when they change, so the FTS trigger stays quiet
+    boolean textChanged = update.getTitle() != null || update.getDescription() != null;
+    try (PreparedStatement ps = conn.prepareStatement(textChanged ? UPDATE_ALL_SQL : UPDATE_STATUS_SQL)) {
+      int i = 1;
+      if (textChanged) {
+        ps.setString(i++, update.getTitle());
+        ps.setString(i++, update.getDescription());
+      }
+      TodoDates.setMillis(ps, i++, update.getDueDate());
+      // The new status twice: for completed, and to decide completed_at
+      setCompleted(ps, i++, update.getCompleted());
+      setCompleted(ps, i++, update.getCompleted());
+      ps.setLong(i++, System.currentTimeMillis());
+      ps.setInt(i, id);
+      cache.invalidate(id);
+      return ps.executeUpdate() > 0;
+    }
+  }
+
+  private static void setCompleted(PreparedStatement ps, int index, Boolean completed) throws SQLException {
+    if (completed == null) {
+      ps.setNull(index, Types.INTEGER);
+    } else {
+      ps.setInt(index, completed ? 1 : 0);
+    }
+  }
+
+  boolean delete(Connection conn, int id) throws SQLException {
+    try (PreparedStatement ps = conn.prepareStatement(DELETE_SQL)) {
+      ps.setInt(1, id);
+      cache.invalidate(id);
+      return ps.executeUpdate() > 0;
+    }
+  }
+}
@@ -0,0 +1,81 @@
+package examples;
+
+import com.google.gson.stream.JsonWriter;
+import examples.JDBCOperations.Todo;
+import java.io.IOException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Maps rows of a todos query to Todo objects or straight to JSON.
+ *
+ * Column positions are resolved once per query instead of by name on every
+ * row, and the per-row work is only the typed getters. writeJson() copies
+ * the fields to a JsonWriter without building a Todo at all, which is what
+ * the exporters use.
+ *
+ * The epoch-millisecond date columns are an internal detail: JSON carries
+ * dates as the text exports have always used (see writeJson).
+ */
+public final class TodoRowMapper {
+  // Column list in the order STANDARD expects
+  public static final String COLUMNS = "id, title, description, due_date, completed, created_at";
+  // For queries that select COLUMNS first
+  public static final TodoRowMapper STANDARD = startingAt(1);
+
+  private final int id;
+  private final int title;
+  private final int description;
+  private final int dueDate;
+  private final int completed;
+  private final int createdAt;
+
+  private TodoRowMapper(int id, int title, int description, int dueDate, int completed, int createdAt) {
+    this.id = id;
+    this.title = title;
+    this.description = description;
+    this.dueDate = dueDate;
+    this.completed = completed;
+    this.createdAt = createdAt;
+  }
+
+  // For queries that select COLUMNS in order starting at the given column, e.g. after a join
+  public static TodoRowMapper startingAt(int firstColumn) {
+    return new TodoRowMapper(firstColumn, firstColumn + 1, firstColumn + 2, firstColumn + 3,
+        firstColumn + 4, firstColumn + 5);
+  }
+
+  // Looks the columns up by name once, for queries with any other column order
+  public static TodoRowMapper forResultSet(ResultSet rs) throws SQLException {
+    return new TodoRowMapper(rs.findColumn("id"), rs.findColumn("title"), rs.findColumn("description"),
+        rs.findColumn("due_date"), rs.findColumn("completed"), rs.findColumn("created_at"));
+  }
+
+  // Builds a Todo from the current row
+  public Todo map(ResultSet rs) throws SQLException {
+    return Todo.of(rs.getInt(id), rs.getString(title), rs.getString(description),
+        TodoDates.getMillis(rs, dueDate), rs.getInt(completed) == 1, rs.getLong(createdAt));
+  }
+
+  // True if the id column is NULL, e.g. for the missing side of a LEFT JOIN
+  public boolean isMissing(ResultSet rs) throws SQLException {
+    rs.getInt(id);
+    return rs.wasNull();
+  }
+
+  /**
+   * Writes the current row as one JSON object with the field names Gson uses
+   * for Todo. dueDate is local "yyyy-MM-dd HH:mm:ss" text and createdAt is
+   * UTC timestamp text, as they were stored before dates became INTEGERs.
+   */
+  public void writeJson(JsonWriter json, ResultSet rs) throws SQLException, IOException {
+    json.beginObject();
+    json.name("id").value(rs.getInt(id));
+    json.name("title").value(rs.getString(title));
+    json.name("description").value(rs.getString(description));
+    json.name("dueDate").value(TodoDates.format(TodoDates.getMillis(rs, dueDate)));
+    json.name("completed").value(rs.getInt(completed) == 1);
+    json.name("createdAt").value(TodoDates.formatTimestamp(rs.getLong(createdAt)));
+    json.endObject();
+  }
+}
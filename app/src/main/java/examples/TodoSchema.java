@@ -0,0 +1,240 @@
+package examples;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * DDL for the todo database, shared by the app, the benchmarks and the tools.
+ * The schema version is kept in PRAGMA user_version; create() upgrades older
+ * databases in place.
+ *
+ * Version 1 stores due_date and created_at as epoch milliseconds (INTEGER)
+ * instead of free-form TEXT, so due date ranges are plain index range scans.
+ * Version 2 adds completed_at, set when a todo is marked completed, so
+ * TodoArchiver ages completed todos from their completion, not their creation.
+ */
+public final class TodoSchema {
+  public static final int VERSION = 2;
+  // Current time in epoch milliseconds
+  private static final String NOW_MILLIS_SQL = "CAST((julianday('now') - 2440587.5) * 86400000 AS INTEGER)";
+
+  private static final String CREATE_TODOS_SQL = "CREATE TABLE IF NOT EXISTS %s (" +
+      "id INTEGER PRIMARY KEY AUTOINCREMENT," +
+      "title TEXT NOT NULL," +
+      "description TEXT," +
+      "due_date INTEGER," +
+      "completed INTEGER DEFAULT 0," +
+      "created_at INTEGER NOT NULL DEFAULT (" + NOW_MILLIS_SQL + ")," +
+      "completed_at INTEGER)";
+
+  private TodoSchema() {
+    // utility
+  }
+
+  public static void create(Connection conn) throws SQLException {
+    try (Statement stmt = conn.createStatement()) {
+      if (!tableExists(conn, "todos")) {
+        // Only possible before the first table exists; lets TodoArchiver free pages without a rebuild
+        stmt.execute("PRAGMA auto_vacuum = INCREMENTAL");
+      }
+      if (getVersion(stmt) < 1 && tableExists(conn, "todos")) {
+        migrateToEpochMillis(conn, stmt);
+      }
+      if (getVersion(stmt) < 2 && tableExists(conn, "todos")) {
+        addCompletedAt(conn, stmt);
+      }
+      stmt.execute(String.format(CREATE_TODOS_SQL, "todos"));
+
+      // Keyset pagination: "completed = ? AND id > ? ORDER BY id" is a pure range scan
+      stmt.execute("CREATE INDEX IF NOT EXISTS idx_todos_completed_id ON todos (completed, id)");
+      // Status plus due date range filters
+      stmt.execute("CREATE INDEX IF NOT EXISTS idx_todos_completed_due ON todos (completed, due_date, id)");
+      stmt.execute("CREATE INDEX IF NOT EXISTS idx_todos_due_date ON todos (due_date, id)");
+
+      // Cold storage for completed todos moved out by TodoArchiver
+      stmt.execute("CREATE TABLE IF NOT EXISTS todos_archive (" +
+          "id INTEGER PRIMARY KEY," +
+          "title TEXT NOT NULL," +
+          "description TEXT," +
+          "due_date INTEGER," +
+          "completed INTEGER," +
+          "created_at INTEGER NOT NULL," +
+          "archived_at INTEGER NOT NULL," +
+          "completed_at INTEGER)");
+
+      createFullTextIndex(conn, stmt);
+      createChangeLog(stmt);
+      stmt.execute("PRAGMA user_version = " + VERSION);
+    }
+  }
+
+  static int getVersion(Statement stmt) throws SQLException {
+    try (ResultSet rs = stmt.executeQuery("PRAGMA user_version")) {
+      return rs.next() ? rs.getInt(1) : 0;
+    }
+  }
+
+  /**
+   * Rebuilds a version 0 todos table (TEXT dates) with INTEGER epoch-millisecond
+   * dates. Due dates are read as local time in the formats TodoDates accepts;
+   * text that is not a date becomes NULL. created_at came from CURRENT_TIMESTAMP
+   * and is read as UTC. Runs in one transaction, so a failure leaves the old table.
+   */
+  private static void migrateToEpochMillis(Connection conn, Statement stmt) throws SQLException {
+    boolean autoCommit = conn.getAutoCommit();
+    conn.setAutoCommit(false);
+    try {
+      stmt.execute(String.format(CREATE_TODOS_SQL, "todos_v1"));
+      int dropped = 0;
+      try (Statement select = conn.createStatement();
+          ResultSet rs = select.executeQuery(
+              "SELECT id, title, description, due_date, completed, created_at FROM todos");
+          PreparedStatement insert = conn.prepareStatement(
+              "INSERT INTO todos_v1 (id, title, description, due_date, completed, created_at) " +
+                  "VALUES (?, ?, ?, ?, ?, ?)")) {
+        int pending = 0;
+        while (rs.next()) {
+          String dueText = rs.getString(4);
+          Long due = TodoDates.parseOrNull(dueText);
+          if (due == null && dueText != null && !dueText.isBlank()) {
+            dropped++;
+          }
+          insert.setInt(1, rs.getInt(1));
+          insert.setString(2, rs.getString(2));
+          insert.setString(3, rs.getString(3));
+          TodoDates.setMillis(insert, 4, due);
+          insert.setInt(5, rs.getInt(5));
+          insert.setLong(6, parseTimestamp(rs.getString(6)));
+          insert.addBatch();
+          if (++pending == 1_000) {
+            insert.executeBatch();
+            pending = 0;
+          }
+        }
+        insert.executeBatch();
+      }
+
+      // Keep AUTOINCREMENT from reusing ids of rows that were deleted before the migration
+      long sequence = 0;
+      try (ResultSet rs = stmt.executeQuery("SELECT seq FROM sqlite_sequence WHERE name = 'todos'")) {
+        if (rs.next()) {
+          sequence = rs.getLong(1);
+        }
+      }
+      // Dropping the table also drops its indexes and FTS triggers; create() recreates them
+      stmt.execute("DROP TABLE todos");
+      stmt.execute("ALTER TABLE todos_v1 RENAME TO todos");
+      stmt.execute("UPDATE sqlite_sequence SET seq = " + sequence + " WHERE name = 'todos' AND seq < " + sequence);
+      stmt.execute("PRAGMA user_version = 1");
+      conn.commit();
+      if (dropped > 0) {
+        System.err.println("Schema migration: " + dropped + " due dates were not valid dates and were cleared");
+      }
+    } catch (SQLException | RuntimeException e) {
+      conn.rollback();
+      throw e;
+    } finally {
+      conn.setAutoCommit(autoCommit);
+    }
+  }
+
+  /**
+   * Adds completed_at to a version 1 database. When the todos that are
+   * already completed were completed is unknown, so they get the time of the
+   * upgrade: the archiver then counts their age from now instead of moving
+   * them all on its next run. Runs in one transaction.
+   */
+  private static void addCompletedAt(Connection conn, Statement stmt) throws SQLException {
+    boolean autoCommit = conn.getAutoCommit();
+    conn.setAutoCommit(false);
+    try {
+      // A todos table rebuilt by migrateToEpochMillis already has the column
+      if (!columnExists(conn, "todos", "completed_at")) {
+        stmt.execute("ALTER TABLE todos ADD COLUMN completed_at INTEGER");
+      }
+      if (tableExists(conn, "todos_archive") && !columnExists(conn, "todos_archive", "completed_at")) {
+        stmt.execute("ALTER TABLE todos_archive ADD COLUMN completed_at INTEGER");
+      }
+      // The backfill is not a change to the todos; createChangeLog() recreates the trigger
+      stmt.execute("DROP TRIGGER IF EXISTS todo_changes_au");
+      stmt.execute("UPDATE todos SET completed_at = " + NOW_MILLIS_SQL + " WHERE completed = 1 AND completed_at IS NULL");
+      stmt.execute("PRAGMA user_version = 2");
+      conn.commit();
+    } catch (SQLException | RuntimeException e) {
+      conn.rollback();
+      throw e;
+    } finally {
+      conn.setAutoCommit(autoCommit);
+    }
+  }
+
+  // CURRENT_TIMESTAMP text ("yyyy-MM-dd HH:mm:ss" in UTC) to epoch milliseconds
+  private static long parseTimestamp(String text) {
+    Long millis = TodoDates.parseTimestampOrNull(text);
+    return millis != null ? millis : System.currentTimeMillis();
+  }
+
+  // External-content FTS5 table mirroring title and description, kept in sync by triggers
+  private static void createFullTextIndex(Connection conn, Statement stmt) throws SQLException {
+    boolean exists = tableExists(conn, "todos_fts");
+    stmt.execute("CREATE VIRTUAL TABLE IF NOT EXISTS todos_fts USING fts5(" +
+        "title, description, content='todos', content_rowid='id')");
+    stmt.execute("CREATE TRIGGER IF NOT EXISTS todos_fts_ai AFTER INSERT ON todos BEGIN " +
+        "INSERT INTO todos_fts (rowid, title, description) VALUES (new.id, new.title, new.description); " +
+        "END");
+    stmt.execute("CREATE TRIGGER IF NOT EXISTS todos_fts_ad AFTER DELETE ON todos BEGIN " +
+        "INSERT INTO todos_fts (todos_fts, rowid, title, description) " +
+        "VALUES ('delete', old.id, old.title, old.description); " +
+        "END");
+    stmt.execute("CREATE TRIGGER IF NOT EXISTS todos_fts_au AFTER UPDATE OF title, description ON todos BEGIN " +
+        "INSERT INTO todos_fts (todos_fts, rowid, title, description) " +
+        "VALUES ('delete', old.id, old.title, old.description); " +
+        "INSERT INTO todos_fts (rowid, title, description) VALUES (new.id, new.title, new.description); " +
+        "END");
+    if (!exists) {
+      // Index rows that were written before the FTS table existed
+      stmt.execute("INSERT INTO todos_fts (todos_fts) VALUES ('rebuild')");
+    }
+  }
+
+  // Change log read by TodoChangeFeed; AUTOINCREMENT keeps seq increasing even after pruning
+  private static void createChangeLog(Statement stmt) throws SQLException {
+    stmt.execute("CREATE TABLE IF NOT EXISTS todo_changes (" +
+        "seq INTEGER PRIMARY KEY AUTOINCREMENT," +
+        "todo_id INTEGER NOT NULL," +
+        "op TEXT NOT NULL," +
+        "changed_at INTEGER NOT NULL DEFAULT (" + NOW_MILLIS_SQL + "))");
+    stmt.execute("CREATE TRIGGER IF NOT EXISTS todo_changes_ai AFTER INSERT ON todos BEGIN " +
+        "INSERT INTO todo_changes (todo_id, op) VALUES (new.id, 'I'); " +
+        "END");
+    stmt.execute("CREATE TRIGGER IF NOT EXISTS todo_changes_au AFTER UPDATE ON todos BEGIN " +
+        "INSERT INTO todo_changes (todo_id, op) VALUES (new.id, 'U'); " +
+        "END");
+    stmt.execute("CREATE TRIGGER IF NOT EXISTS todo_changes_ad AFTER DELETE ON todos BEGIN " +
+        "INSERT INTO todo_changes (todo_id, op) VALUES (old.id, 'D'); " +
+        "END");
+  }
+
+  private static boolean columnExists(Connection conn, String table, String column) throws SQLException {
+    try (PreparedStatement ps = conn.prepareStatement("SELECT 1 FROM pragma_table_info(?) WHERE name = ?")) {
+      ps.setString(1, table);
+      ps.setString(2, column);
+      try (ResultSet rs = ps.executeQuery()) {
+        return rs.next();
+      }
+    }
+  }
+
+  static boolean tableExists(Connection conn, String name) throws SQLException {
+    try (PreparedStatement ps = conn.prepareStatement(
+        "SELECT 1 FROM sqlite_master WHERE type = 'table' AND name = ?")) {
+      ps.setString(1, name);
+      try (ResultSet rs = ps.executeQuery()) {
+        return rs.next();
+      }
+    }
+  }
+}
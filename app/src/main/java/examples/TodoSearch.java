@@ -0,0 +1,71 @@
+package examples;
+
+import examples.JDBCOperations.Todo;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Ranked full-text search over todo titles and descriptions.
+ * Backed by the todos_fts FTS5 table that TodoSchema keeps in sync with
+ * triggers, so a lookup is an index probe instead of a LIKE '%term%' scan.
+ */
+public final class TodoSearch {
+  public static final int DEFAULT_LIMIT = 20;
+
+  private static final String SEARCH_SQL =
+      "SELECT t.id, t.title, t.description, t.due_date, t.completed, t.created_at " +
+          "FROM todos_fts JOIN todos t ON t.id = todos_fts.rowid " +
+          "WHERE todos_fts MATCH ? ORDER BY rank LIMIT ?";
+
+  private TodoSearch() {
+    // utility
+  }
+
+  /**
+   * Returns todos matching every word of the input, best match first.
+   * The last word also matches as a prefix ("meet" finds "meeting").
+   */
+  public static List<Todo> search(Connection conn, String text, int limit) throws SQLException {
+    String match = toMatchExpression(text);
+    List<Todo> results = new ArrayList<>();
+    if (match.isEmpty()) {
+      return results;
+    }
+    try (PreparedStatement ps = conn.prepareStatement(SEARCH_SQL)) {
+      ps.setString(1, match);
+      ps.setInt(2, limit);
+      try (ResultSet rs = ps.executeQuery()) {
+        while (rs.next()) {
+          results.add(TodoRowMapper.STANDARD.map(rs));
+        }
+      }
+    }
+    return results;
+  }
+
+  // Quotes every word so user input can never be parsed as FTS5 query syntax
+  static String toMatchExpression(String text) {
+    if (text == null) {
+      return "";
+    }
+    String[] words = text.trim().split("\\s+");
+    StringBuilder match = new StringBuilder();
+    for (int i = 0; i < words.length; i++) {
+      if (words[i].isEmpty()) {
+        continue;
+      }
+      if (match.length() > 0) {
+        match.append(' ');
+      }
+      match.append('"').append(words[i].replace("\"", "\"\"")).append('"');
+      if (i == words.length - 1) {
+        match.append('*');
+      }
+    }
+    return match.toString();
+  }
+}
@@ -0,0 +1,147 @@
+package examples;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * LRU cache of prepared statements for one physical connection, keyed by SQL
+ * text. Callers get a proxy whose close() only clears the parameters, so the
+ * next prepareStatement with the same SQL skips SQLite's parse and plan step.
+ *
+ * A connection is used by one borrower at a time, so the cache itself needs
+ * no locking; the hit/miss counters are shared by all caches of a pool.
+ */
+class TodoStatementCache {
+  private final Connection conn;
+  private final int capacity;
+  private final LinkedHashMap<String, Entry> entries;
+  private final AtomicLong hits;
+  private final AtomicLong misses;
+
+  TodoStatementCache(Connection conn, int capacity, AtomicLong hits, AtomicLong misses) {
+    this.conn = conn;
+    this.capacity = capacity;
+    this.hits = hits;
+    this.misses = misses;
+    this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+        if (size() <= TodoStatementCache.this.capacity) {
+          return false;
+        }
+        eldest.getValue().evict();
+        return true;
+      }
+    };
+  }
+
+  PreparedStatement prepare(String sql) throws SQLException {
+    return prepare(sql, sql, -1);
+  }
+
+  PreparedStatement prepare(String sql, int autoGeneratedKeys) throws SQLException {
+    return prepare(sql + "\u0000" + autoGeneratedKeys, sql, autoGeneratedKeys);
+  }
+
+  private PreparedStatement prepare(String key, String sql, int autoGeneratedKeys) throws SQLException {
+    Entry entry = entries.get(key);
+    if (entry != null && !entry.inUse) {
+      hits.incrementAndGet();
+    } else {
+      misses.incrementAndGet();
+      PreparedStatement ps = autoGeneratedKeys < 0
+          ? conn.prepareStatement(sql)
+          : conn.prepareStatement(sql, autoGeneratedKeys);
+      if (entry != null) {
+        // Same SQL is already open on this connection (nested use): hand out an uncached one
+        return ps;
+      }
+      entry = new Entry(ps);
+      entries.put(key, entry);
+    }
+    entry.inUse = true;
+    return entry.proxy;
+  }
+
+  // Called when the connection goes back to the pool; reclaims statements a borrower left open
+  void reset() throws SQLException {
+    for (Entry entry : entries.values()) {
+      if (entry.inUse) {
+        entry.proxy.close();
+      }
+    }
+  }
+
+  void closeAll() {
+    for (Entry entry : entries.values()) {
+      entry.evict();
+    }
+    entries.clear();
+  }
+
+  private static class Entry implements InvocationHandler {
+    private final PreparedStatement target;
+    private final PreparedStatement proxy;
+    private boolean inUse;
+    private boolean evicted;
+
+    Entry(PreparedStatement target) {
+      this.target = target;
+      this.proxy = (PreparedStatement) Proxy.newProxyInstance(
+          PreparedStatement.class.getClassLoader(),
+          new Class<?>[] { PreparedStatement.class },
+          this);
+    }
+
+    void evict() {
+      evicted = true;
+      if (!inUse) {
+        closeQuietly();
+      }
+    }
+
+    private void closeQuietly() {
+      try {
+        target.close();
+      } catch (SQLException e) {
+        System.err.println("Error closing cached statement: " + e.getMessage());
+      }
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+      switch (method.getName()) {
+        case "close":
+          if (inUse) {
+            inUse = false;
+            if (evicted) {
+              closeQuietly();
+            } else {
+              target.clearParameters();
+              target.clearBatch();
+            }
+          }
+          return null;
+        case "isClosed":
+          return !inUse || target.isClosed();
+        case "unwrap":
+          return target.unwrap((Class<?>) args[0]);
+        default:
+          break;
+      }
+      try {
+        return method.invoke(target, args);
+      } catch (InvocationTargetException e) {
+        throw e.getCause();
+      }
+    }
+  }
+}
@@ -0,0 +1,72 @@
+package examples;
+
+/**
+ * Partial update of a todo. Fields left null keep their current value.
+ * Instances are immutable; use the with* methods to set fields.
+ */
+public class TodoUpdate {
+  private final String title;
+  private final String description;
+  // Epoch milliseconds
+  private final Long dueDate;
+  private final Boolean completed;
+
+  public TodoUpdate() {
+    this(null, null, null, null);
+  }
+
+  private TodoUpdate(String title, String description, Long dueDate, Boolean completed) {
+    this.title = title;
+    this.description = description;
+    this.dueDate = dueDate;
+    this.completed = completed;
+  }
+
+  public TodoUpdate withTitle(String title) {
+    return new TodoUpdate(title, description, dueDate, completed);
+  }
+
+  public TodoUpdate withDescription(String description) {
+    return new TodoUpdate(title, description, dueDate, completed);
+  }
+
+  /**
+   * @param dueDate local date-time text, see TodoDates.parse
+   * @throws IllegalArgumentException if the text is empty or not a valid date
+   */
+  public TodoUpdate withDueDate(String dueDate) {
+    Long millis = TodoDates.parse(dueDate);
+    if (millis == null) {
+      throw new IllegalArgumentException("Due date must not be empty");
+    }
+    return withDueDate(millis.longValue());
+  }
+
+  public TodoUpdate withDueDate(long dueDate) {
+    return new TodoUpdate(title, description, dueDate, completed);
+  }
+
+  public TodoUpdate withCompleted(Boolean completed) {
+    return new TodoUpdate(title, description, dueDate, completed);
+  }
+
+  public String getTitle() {
+    return title;
+  }
+
+  public String getDescription() {
+    return description;
+  }
+
+  public Long getDueDate() {
+    return dueDate;
+  }
+
+  public Boolean getCompleted() {
+    return completed;
+  }
+
+  public boolean isEmpty() {
+    return title == null && description == null && dueDate == null && completed == null;
+  }
+}
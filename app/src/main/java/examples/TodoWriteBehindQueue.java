@@ -0,0 +1,222 @@
+package examples;
+
+import examples.JDBCOperations.Todo;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Asynchronous write-behind mode for todo mutations.
+ * Callers enqueue adds, updates and deletes into a bounded queue and get a
+ * CompletableFuture back. A single writer thread drains the queue and applies
+ * up to maxBatch mutations per transaction, so many callers share one SQLite
+ * commit. Futures complete only after the transaction has committed.
+ * When the queue is full, enqueueing blocks (backpressure).
+ *
+ * Writes are not visible to readers until their future completes.
+ */
+public class TodoWriteBehindQueue implements AutoCloseable {
+  private final TodoRepository repository;
+  private final BlockingQueue<Mutation<?>> queue;
+  private final int maxBatch;
+  private final Thread writerThread;
+  private volatile boolean closed;
+  // Set by the writer thread before it rejects what is left in the queue
+  private volatile boolean writerExited;
+
+  private final AtomicLong appliedMutations = new AtomicLong();
+  private final AtomicLong failedMutations = new AtomicLong();
+  private final AtomicLong transactions = new AtomicLong();
+
+  // Wakes the writer thread on close without being applied
+  private static final Mutation<Void> POISON = new Mutation<>(conn -> null);
+
+  public TodoWriteBehindQueue(TodoRepository repository, int capacity, int maxBatch) {
+    if (capacity < 1 || maxBatch < 1) {
+      throw new IllegalArgumentException("capacity and maxBatch must be positive");
+    }
+    this.repository = repository;
+    this.queue = new ArrayBlockingQueue<>(capacity);
+    this.maxBatch = maxBatch;
+    this.writerThread = new Thread(this::runWriter, "TodoWriteBehind");
+    this.writerThread.setDaemon(true);
+    this.writerThread.start();
+  }
+
+  public CompletableFuture<Integer> add(Todo todo) {
+    return enqueue(new Mutation<>(conn -> repository.add(conn, todo)));
+  }
+
+  public CompletableFuture<Boolean> update(int id, TodoUpdate update) {
+    if (update.isEmpty()) {
+      return CompletableFuture.failedFuture(new IllegalArgumentException("Update has no fields to change"));
+    }
+    return enqueue(new Mutation<>(conn -> repository.update(conn, id, update), id));
+  }
+
+  public CompletableFuture<Boolean> delete(int id) {
+    return enqueue(new Mutation<>(conn -> repository.delete(conn, id), id));
+  }
+
+  private <T> CompletableFuture<T> enqueue(Mutation<T> mutation) {
+    if (closed) {
+      return CompletableFuture.failedFuture(new IllegalStateException("Write-behind queue is closed"));
+    }
+    try {
+      queue.put(mutation);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return CompletableFuture.failedFuture(e);
+    }
+    // put() can block on a full queue past close() and only succeed once the
+    // writer's final drain has made room; nobody would take the mutation then
+    if (writerExited) {
+      queue.remove(mutation);
+      mutation.future.completeExceptionally(new IllegalStateException("Write-behind queue is closed"));
+    }
+    return mutation.future;
+  }
+
+  public int getPendingCount() {
+    return queue.size();
+  }
+
+  public long getAppliedCount() {
+    return appliedMutations.get();
+  }
+
+  public long getFailedCount() {
+    return failedMutations.get();
+  }
+
+  public long getTransactionCount() {
+    return transactions.get();
+  }
+
+  private void runWriter() {
+    List<Mutation<?>> batch = new ArrayList<>(maxBatch);
+    boolean stop = false;
+    while (!stop) {
+      try {
+        batch.add(queue.take());
+      } catch (InterruptedException e) {
+        break;
+      }
+      queue.drainTo(batch, maxBatch - 1);
+      stop = batch.remove(POISON);
+      if (!batch.isEmpty()) {
+        applyBatch(batch);
+      }
+      batch.clear();
+    }
+    // Mutations that raced with close() are rejected rather than left hanging;
+    // enqueue() rejects its own if it gets in after this drain
+    writerExited = true;
+    Mutation<?> late;
+    while ((late = queue.poll()) != null) {
+      late.future.completeExceptionally(new IllegalStateException("Write-behind queue is closed"));
+    }
+  }
+
+  private void applyBatch(List<Mutation<?>> batch) {
+    List<Mutation<?>> applied = new ArrayList<>(batch.size());
+    try (Connection conn = repository.getPool().getWriteConnection()) {
+      conn.setAutoCommit(false);
+      for (Mutation<?> mutation : batch) {
+        // A failing mutation is rolled back alone; the rest of the batch still commits
+        Savepoint savepoint = conn.setSavepoint();
+        try {
+          mutation.apply(conn);
+          conn.releaseSavepoint(savepoint);
+          applied.add(mutation);
+        } catch (SQLException | RuntimeException e) {
+          conn.rollback(savepoint);
+          failedMutations.incrementAndGet();
+          mutation.future.completeExceptionally(e);
+        }
+      }
+      conn.commit();
+      transactions.incrementAndGet();
+    } catch (SQLException e) {
+      // The transaction was rolled back: nothing in this batch was written
+      for (Mutation<?> mutation : batch) {
+        if (mutation.future.completeExceptionally(e)) {
+          failedMutations.incrementAndGet();
+        }
+      }
+      return;
+    }
+    for (Mutation<?> mutation : applied) {
+      int changedId = mutation.changedId();
+      if (changedId > 0) {
+        // Drop anything a reader cached between our change and the commit, and notify listeners
+        repository.committed(changedId);
+      }
+      appliedMutations.incrementAndGet();
+      mutation.complete();
+    }
+  }
+
+  /**
+   * Stops accepting mutations, applies everything already queued and waits
+   * for the writer thread to finish.
+   */
+  @Override
+  public void close() {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    try {
+      queue.put(POISON);
+      writerThread.join(TimeUnit.SECONDS.toMillis(30));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  @FunctionalInterface
+  private interface SqlAction<T> {
+    T apply(Connection conn) throws SQLException;
+  }
+
+  private static class Mutation<T> {
+    private final SqlAction<T> action;
+    // Row touched by an update or delete, 0 for inserts
+    private final int todoId;
+    private final CompletableFuture<T> future = new CompletableFuture<>();
+    private T result;
+
+    Mutation(SqlAction<T> action) {
+      this(action, 0);
+    }
+
+    Mutation(SqlAction<T> action, int todoId) {
+      this.action = action;
+      this.todoId = todoId;
+    }
+
+    void apply(Connection conn) throws SQLException {
+      result = action.apply(conn);
+    }
+
+    // Id of the row this mutation changed, once applied
+    int changedId() {
+      if (todoId == 0 && result instanceof Integer) {
+        return (Integer) result;
+      }
+      return todoId;
+    }
+
+    void complete() {
+      future.complete(result);
+    }
+  }
+}
@@ -0,0 +1,121 @@
+package examples;
+
+import org.junit.jupiter.api.Test;
+import examples.SnakeEngine.Direction;
+import examples.SnakeEngine.Outcome;
+import static org.junit.jupiter.api.Assertions.*;
+
+class SnakeEngineTest {
+
+  @Test
+  void sameSeedAndMovesGiveSameGame() {
+    SnakeRunner first = new SnakeRunner(30, 20, SnakeStrategy.greedy(), 10_000);
+    SnakeRunner second = new SnakeRunner(30, 20, SnakeStrategy.greedy(), 10_000);
+    for (long seed = 1; seed <= 20; seed++) {
+      SnakeRunner.GameResult a = first.play(seed);
+      SnakeRunner.GameResult b = second.play(seed);
+      assertEquals(a.getScore(), b.getScore());
+      assertEquals(a.getTicks(), b.getTicks());
+      assertEquals(first.getEngine().snapshot(), second.getEngine().snapshot());
+    }
+  }
+
+  @Test
+  void snapshotResumesExactly() {
+    SnakeEngine engine = new SnakeEngine(12, 8, 42);
+    SnakeStrategy greedy = SnakeStrategy.greedy();
+    for (int i = 0; i < 50 && !engine.isOver(); i++) {
+      engine.step(greedy.next(engine));
+    }
+    SnakeEngine resumed = new SnakeEngine(engine.snapshot());
+    while (!engine.isOver() && engine.getTicks() < 2_000) {
+      Direction d = greedy.next(engine);
+      assertEquals(engine.step(d), resumed.step(d));
+      assertEquals(engine.getFoodCell(), resumed.getFoodCell());
+    }
+    assertEquals(engine.snapshot(), resumed.snapshot());
+  }
+
+  @Test
+  void movingIntoTheTailCellIsACollision() {
+    // 4x2 board: the snake fills row 1 and the tail wraps around to x = 3, right ahead of the head
+    SnakeEngine engine = new SnakeEngine(4, 2, 7);
+    assertEquals(engine.cellOf(2, 1), engine.getHeadCell());
+    assertEquals(engine.cellOf(3, 1), engine.getTailCell());
+    assertEquals(Outcome.DIED, engine.step(null));
+    assertTrue(engine.isOver());
+    assertThrows(IllegalStateException.class, () -> engine.step(null));
+  }
+
+  @Test
+  void reversingIsIgnoredAndWrapAroundWorks() {
+    SnakeEngine engine = new SnakeEngine(10, 10, 3);
+    int head = engine.getHeadCell();
+    engine.step(Direction.LEFT);
+    assertEquals(Direction.RIGHT, engine.getDirection());
+    assertEquals(engine.neighbor(head, Direction.RIGHT), engine.getHeadCell());
+    assertEquals(engine.cellOf(0, 3), engine.neighbor(engine.cellOf(9, 3), Direction.RIGHT));
+    assertEquals(engine.cellOf(4, 9), engine.neighbor(engine.cellOf(4, 0), Direction.UP));
+  }
+
+  @Test
+  void foodIsPlacedOnFreeCellsUntilTheBoardIsFull() {
+    // 6x1 board: going straight eats the last two free cells and wins
+    SnakeEngine engine = new SnakeEngine(6, 1, 11);
+    Outcome outcome = Outcome.MOVED;
+    while (!engine.isOver()) {
+      assertFalse(engine.isOccupied(engine.getFoodCell()));
+      outcome = engine.step(null);
+    }
+    assertEquals(Outcome.WON, outcome);
+    assertEquals(6, engine.getLength());
+    assertEquals(-1, engine.getFoodCell());
+  }
+
+  @Test
+  void batchScoresDoNotDependOnThreadCount() throws InterruptedException {
+    SnakeBatchRunner batch = new SnakeBatchRunner(12, 8, SnakeStrategy::greedy, 5_000);
+    SnakeBatchRunner.ScoreStats one = batch.run(301, 5, 1).getStats();
+    SnakeBatchRunner.ScoreStats three = batch.run(301, 5, 3).getStats();
+    assertEquals(301, three.getGames());
+    assertEquals(one.toString(), three.toString());
+
+    SnakeRunner runner = new SnakeRunner(12, 8, SnakeStrategy.greedy(), 5_000);
+    long ticks = 0;
+    for (long seed = 5; seed < 306; seed++) {
+      ticks += runner.play(seed).getTicks();
+    }
+    assertEquals(ticks, three.getTicks());
+  }
+
+  @Test
+  void autopilotCycleVisitsEveryCell() {
+    for (int width = 4; width <= 7; width++) {
+      for (int height = 2; height <= 5; height++) {
+        SnakeEngine engine = new SnakeEngine(width, height, 0);
+        int[] moves = SnakeAutopilot.buildCycle(width, height);
+        boolean[] seen = new boolean[width * height];
+        int cell = 0;
+        for (int i = 0; i < seen.length; i++) {
+          assertFalse(seen[cell], width + "x" + height);
+          seen[cell] = true;
+          cell = engine.neighbor(cell, SnakeEngine.directions()[moves[cell]]);
+        }
+        assertEquals(0, cell, width + "x" + height);
+      }
+    }
+  }
+
+  @Test
+  void autopilotOutscoresGreedy() {
+    SnakeRunner autopilot = new SnakeRunner(12, 8, new SnakeAutopilot(), 20_000);
+    SnakeRunner greedy = new SnakeRunner(12, 8, SnakeStrategy.greedy(), 20_000);
+    long autopilotScore = 0;
+    long greedyScore = 0;
+    for (long seed = 1; seed <= 20; seed++) {
+      autopilotScore += autopilot.play(seed).getScore();
+      greedyScore += greedy.play(seed).getScore();
+    }
+    assertTrue(autopilotScore > 2 * greedyScore, autopilotScore + " vs " + greedyScore);
+  }
+}
@@ -0,0 +1,115 @@
+package examples;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import examples.JDBCOperations.Todo;
+import static org.junit.jupiter.api.Assertions.*;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+
+class TodoReminderSchedulerTest {
+  private static final LocalDateTime START = LocalDateTime.of(2030, 6, 1, 12, 0);
+
+  @TempDir
+  Path tempDir;
+
+  private TodoConnectionPool pool;
+  private TodoRepository repository;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    pool = new TodoConnectionPool("jdbc:sqlite:" + tempDir.resolve("test.db"), 2, TodoDbProfile.FAST);
+    try (Connection conn = pool.getWriteConnection()) {
+      TodoSchema.create(conn);
+    }
+    repository = new TodoRepository(pool);
+  }
+
+  @AfterEach
+  void tearDown() {
+    pool.close();
+  }
+
+  private static String inSeconds(int seconds) {
+    return TodoDates.format(TodoDates.toMillis(START.plusSeconds(seconds)));
+  }
+
+  @Test
+  void firesDueTodosAndFollowsChanges() throws Exception {
+    int loaded = repository.add(new Todo("Loaded at start", null, inSeconds(2)));
+    int later = repository.add(new Todo("Far away", null, inSeconds(3600)));
+    repository.add(new Todo("Overdue", null, "2000-01-01 00:00:00"));
+
+    ManualClock clock = new ManualClock(TodoDates.toMillis(START));
+    List<Integer> fired = new ArrayList<>();
+    try (TodoReminderScheduler scheduler =
+        new TodoReminderScheduler(repository, (id, due) -> fired.add(id), clock, false)) {
+      assertEquals(2, scheduler.getScheduledCount());
+
+      int added = repository.add(new Todo("Added later", null, inSeconds(2)));
+      int completed = repository.add(new Todo("Completed", null, inSeconds(2)));
+      repository.update(completed, new TodoUpdate().withCompleted(true));
+      repository.update(later, new TodoUpdate().withDueDate(inSeconds(3)));
+
+      // Changes are only queued until the scheduler runs
+      assertEquals(2, scheduler.getScheduledCount());
+      scheduler.runOnce();
+      assertEquals(3, scheduler.getScheduledCount());
+      assertEquals(START.plusSeconds(2), scheduler.getNextDue().orElseThrow());
+      assertTrue(fired.isEmpty());
+
+      clock.advanceSeconds(2);
+      scheduler.runOnce();
+      assertEquals(List.of(loaded, added), fired);
+      assertEquals(START.plusSeconds(3), scheduler.getNextDue().orElseThrow());
+
+      clock.advanceSeconds(1);
+      scheduler.runOnce();
+      assertEquals(List.of(loaded, added, later), fired);
+      assertEquals(0, scheduler.getScheduledCount());
+      assertEquals(3, scheduler.getFiredCount());
+    }
+  }
+
+  // Clock that only moves when the test says so; withZone() copies share the same time
+  private static final class ManualClock extends Clock {
+    private final long[] millis;
+    private final ZoneId zone;
+
+    ManualClock(long millis) {
+      this(new long[] {millis}, ZoneId.systemDefault());
+    }
+
+    private ManualClock(long[] millis, ZoneId zone) {
+      this.millis = millis;
+      this.zone = zone;
+    }
+
+    void advanceSeconds(int seconds) {
+      millis[0] += seconds * 1000L;
+    }
+
+    @Override
+    public ZoneId getZone() {
+      return zone;
+    }
+
+    @Override
+    public Clock withZone(ZoneId zone) {
+      return new ManualClock(millis, zone);
+    }
+
+    @Override
+    public Instant instant() {
+      return Instant.ofEpochMilli(millis[0]);
+    }
+  }
+}
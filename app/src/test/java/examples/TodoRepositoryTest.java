@@ -0,0 +1,399 @@
+package examples;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import examples.JDBCOperations.Todo;
+import static org.junit.jupiter.api.Assertions.*;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+class TodoRepositoryTest {
+
+  @TempDir
+  Path tempDir;
+
+  private TodoConnectionPool pool;
+  private TodoRepository repository;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    pool = new TodoConnectionPool("jdbc:sqlite:" + tempDir.resolve("test.db"), 2, TodoDbProfile.FAST);
+    try (Connection conn = pool.getWriteConnection()) {
+      TodoSchema.create(conn);
+    }
+    repository = new TodoRepository(pool);
+  }
+
+  @AfterEach
+  void tearDown() {
+    pool.close();
+  }
+
+  @Test
+  void addFindUpdateDelete() throws Exception {
+    int id = repository.add(new Todo("Write tests", "Repository round trip", "2030-01-01 12:00:00"));
+
+    Todo found = repository.findById(id).orElseThrow();
+    assertEquals("Write tests", found.getTitle());
+    assertFalse(found.isCompleted());
+
+    assertTrue(repository.update(id, new TodoUpdate().withCompleted(true)));
+    Todo updated = repository.findById(id).orElseThrow();
+    assertTrue(updated.isCompleted());
+    assertEquals("Repository round trip", updated.getDescription());
+
+    assertTrue(repository.delete(id));
+    assertTrue(repository.findById(id).isEmpty());
+    assertFalse(repository.delete(id));
+  }
+
+  @Test
+  void connectionsReturnToPool() throws Exception {
+    repository.add(new Todo("Pooled", null, null));
+    repository.findById(1);
+    assertEquals(0, pool.getStats().getInUse());
+    assertTrue(pool.getStats().getBorrowCount() >= 2);
+  }
+
+  @Test
+  void preparedStatementsAreReusedPerConnection() throws Exception {
+    int id = repository.add(new Todo("Reuse", null, null));
+    long hitsBefore = pool.getStats().getStatementHits();
+    for (int i = 0; i < 5; i++) {
+      repository.update(id, new TodoUpdate().withCompleted(i % 2 == 0));
+    }
+    assertTrue(pool.getStats().getStatementHits() - hitsBefore >= 4);
+    assertTrue(repository.findById(id).orElseThrow().isCompleted());
+  }
+
+  @Test
+  void writeBehindAcknowledgesAfterCommit() throws Exception {
+    try (TodoWriteBehindQueue queue = new TodoWriteBehindQueue(repository, 100, 10)) {
+      CompletableFuture<Integer> added = queue.add(new Todo("Queued", "Write-behind", null));
+      int id = added.get();
+      assertTrue(repository.findById(id).isPresent());
+
+      assertTrue(queue.update(id, new TodoUpdate().withTitle("Renamed")).get());
+      assertFalse(queue.delete(id + 1000).get());
+      assertEquals("Renamed", repository.findById(id).orElseThrow().getTitle());
+    }
+  }
+
+  @Test
+  void cacheServesRepeatedLookupsAndIsInvalidated() throws Exception {
+    int id = repository.add(new Todo("Cached", null, null));
+    repository.findById(id);
+    repository.findById(id);
+    assertEquals(1, repository.getCacheStats().getHits());
+    assertEquals(1, repository.getCacheStats().getMisses());
+
+    repository.update(id, new TodoUpdate().withTitle("Changed"));
+    assertEquals("Changed", repository.findById(id).orElseThrow().getTitle());
+
+    repository.delete(id);
+    assertTrue(repository.findById(id).isEmpty());
+  }
+
+  @Test
+  void listenersOnlyHearChangesThatHappened() throws Exception {
+    int id = repository.add(new Todo("Watched", null, null));
+    List<Integer> changed = new ArrayList<>();
+    repository.addChangeListener(new TodoChangeListener() {
+      @Override
+      public void todoChanged(int changedId) {
+        changed.add(changedId);
+      }
+
+      @Override
+      public void allChanged() {
+      }
+    });
+    assertFalse(repository.update(id + 1, new TodoUpdate().withCompleted(true)));
+    assertFalse(repository.delete(id + 1));
+    assertTrue(changed.isEmpty());
+    assertTrue(repository.update(id, new TodoUpdate().withCompleted(true)));
+    assertTrue(repository.delete(id));
+    assertEquals(List.of(id, id), changed);
+  }
+
+  @Test
+  void keysetPagesCoverAllRows() throws Exception {
+    for (int i = 0; i < 45; i++) {
+      repository.add(new Todo("Todo " + i, null, null));
+    }
+    TodoPageQuery query = new TodoPageQuery().withLimit(20);
+    int total = 0;
+    int pages = 0;
+    while (true) {
+      TodoPageQuery.TodoPage page = repository.findPage(query);
+      total += page.getItems().size();
+      pages++;
+      if (!page.hasMore()) {
+        break;
+      }
+      query = page.nextQuery();
+    }
+    assertEquals(45, total);
+    assertEquals(3, pages);
+  }
+
+  @Test
+  void dueRangePagesCoverAllRowsOnce() throws Exception {
+    // Several todos per due date, so the cursor has to break ties by id
+    for (int i = 0; i < 25; i++) {
+      repository.add(new Todo("Due " + i, null, String.format("2030-06-%02d", 1 + i / 3)));
+    }
+    repository.add(new Todo("Outside range", null, "2031-01-01"));
+    TodoPageQuery query = new TodoPageQuery().withLimit(4)
+        .withDueBetween(TodoDates.toMillis(LocalDateTime.of(2030, 1, 1, 0, 0)),
+            TodoDates.toMillis(LocalDateTime.of(2031, 1, 1, 0, 0)));
+    assertThrows(IllegalStateException.class, () -> query.afterId(3));
+
+    Set<Integer> seen = new HashSet<>();
+    TodoPageQuery next = query;
+    while (true) {
+      TodoPageQuery.TodoPage page = repository.findPage(next);
+      for (Todo todo : page.getItems()) {
+        assertTrue(seen.add(todo.getId()), "id " + todo.getId() + " on two pages");
+      }
+      if (!page.hasMore()) {
+        break;
+      }
+      next = page.nextQuery();
+    }
+    assertEquals(25, seen.size());
+  }
+
+  @Test
+  void transferRoundTripKeepsTextAndRefreshesCache() throws Exception {
+    int id = repository.add(new Todo("Line\r\nbreaks", "a,\"b\"\rc", null));
+    TodoDataTransfer transfer = new TodoDataTransfer(repository, 2);
+    Path file = tempDir.resolve("todos.csv");
+    assertEquals(1, transfer.export(TodoDataTransfer.Format.CSV, file).getRows());
+    // Slices and the single-snapshot mode write the same file
+    Path snapshot = tempDir.resolve("snapshot.csv");
+    assertEquals(1, transfer.export(TodoDataTransfer.Format.CSV, snapshot, true).getRows());
+    assertEquals(Files.readString(file), Files.readString(snapshot));
+
+    repository.update(id, new TodoUpdate().withTitle("Changed"));
+    assertEquals("Changed", repository.findById(id).orElseThrow().getTitle());
+    assertEquals(1, transfer.importFrom(TodoDataTransfer.Format.CSV, file).getRows());
+    Todo restored = repository.findById(id).orElseThrow();
+    assertEquals("Line\r\nbreaks", restored.getTitle());
+    assertEquals("a,\"b\"\rc", restored.getDescription());
+
+    Path bad = tempDir.resolve("bad.ndjson");
+    Files.writeString(bad, "{\"id\":1,\"title\":\"ok\"}\n\n{\"id\":\"x\"}\n");
+    IOException e = assertThrows(IOException.class,
+        () -> transfer.importFrom(TodoDataTransfer.Format.NDJSON, bad));
+    assertTrue(e.getMessage().contains("record 2"), e.getMessage());
+  }
+
+  @Test
+  void dueDatesAreValidatedAndQueriedByRange() throws Exception {
+    assertThrows(IllegalArgumentException.class, () -> new Todo("Bad", null, "next tuesday"));
+
+    long now = TodoDates.toMillis(LocalDateTime.of(2030, 6, 12, 12, 0));
+    int overdue = repository.add(new Todo("Overdue", null, "2030-06-01"));
+    int thisWeek = repository.add(new Todo("This week", null, "2030-06-14 09:30"));
+    repository.add(new Todo("Later", null, "2030-07-01 00:00:00"));
+    repository.add(new Todo("No due date", null, null));
+
+    assertEquals("2030-06-14 09:30:00", repository.findById(thisWeek).orElseThrow().getDueDateText());
+    assertEquals(overdue, repository.findPage(TodoPageQuery.overdue(now)).getItems().get(0).getId());
+    TodoPageQuery.TodoPage week = repository.findPage(TodoPageQuery.dueThisWeek(now));
+    assertEquals(1, week.getItems().size());
+    assertEquals(thisWeek, week.getItems().get(0).getId());
+  }
+
+  @Test
+  void exportsKeepTextDatesAndImportAcceptsBothForms() throws Exception {
+    int id = repository.add(new Todo("Dated", null, "2030-06-14 09:30"));
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    repository.exportJson(out, false);
+    String json = out.toString(StandardCharsets.UTF_8);
+    assertTrue(json.contains("\"dueDate\":\"2030-06-14 09:30:00\""), json);
+    assertTrue(json.contains("\"createdAt\":\""
+        + TodoDates.formatTimestamp(repository.findById(id).orElseThrow().getCreatedAt()) + "\""), json);
+
+    // Text as exports write it, and the epoch milliseconds some exports held for a while
+    long due = TodoDates.toMillis(LocalDateTime.of(2030, 6, 14, 9, 30));
+    Path file = tempDir.resolve("mixed.ndjson");
+    Files.writeString(file,
+        "{\"id\":50,\"title\":\"Text\",\"dueDate\":\"2030-06-14 09:30:00\",\"createdAt\":\"2024-01-01 00:00:00\"}\n"
+            + "{\"id\":51,\"title\":\"Numbers\",\"dueDate\":" + due + ",\"createdAt\":1704067200000}\n"
+            + "{\"id\":52,\"title\":\"Undated\"}\n");
+    long beforeImport = System.currentTimeMillis();
+    new TodoDataTransfer(repository, 1).importFrom(TodoDataTransfer.Format.NDJSON, file);
+    for (int imported : new int[] {50, 51}) {
+      Todo todo = repository.findById(imported).orElseThrow();
+      assertEquals(due, todo.getDueDate());
+      assertEquals(1_704_067_200_000L, todo.getCreatedAt());
+    }
+    // No createdAt: stamped at import, not 1970, so the archiver does not take it for the oldest row
+    assertTrue(repository.findById(52).orElseThrow().getCreatedAt() >= beforeImport);
+  }
+
+  @Test
+  void textDatesAreMigratedToEpochMillis() throws Exception {
+    String url = "jdbc:sqlite:" + tempDir.resolve("old.db");
+    try (Connection conn = DriverManager.getConnection(url);
+        Statement stmt = conn.createStatement()) {
+      stmt.execute("CREATE TABLE todos (id INTEGER PRIMARY KEY AUTOINCREMENT, title TEXT NOT NULL, " +
+          "description TEXT, due_date TEXT, completed INTEGER DEFAULT 0, " +
+          "created_at TEXT DEFAULT CURRENT_TIMESTAMP)");
+      stmt.execute("INSERT INTO todos (title, due_date, created_at) VALUES " +
+          "('Dated', '2030-01-02 03:04:05', '2024-01-01 00:00:00'), ('Free text', 'someday', NULL)");
+    }
+    try (TodoConnectionPool oldPool = new TodoConnectionPool(url, 1, TodoDbProfile.FAST)) {
+      try (Connection conn = oldPool.getWriteConnection()) {
+        TodoSchema.create(conn);
+      }
+      TodoRepository migrated = new TodoRepository(oldPool);
+      Todo dated = migrated.findById(1).orElseThrow();
+      assertEquals("2030-01-02 03:04:05", dated.getDueDateText());
+      assertEquals(1_704_067_200_000L, dated.getCreatedAt());
+      assertNull(migrated.findById(2).orElseThrow().getDueDate());
+      assertEquals(3, migrated.add(new Todo("After migration", null, null)));
+
+      try (Connection conn = oldPool.getReadConnection();
+          Statement stmt = conn.createStatement();
+          ResultSet rs = stmt.executeQuery("PRAGMA user_version")) {
+        assertTrue(rs.next());
+        assertEquals(TodoSchema.VERSION, rs.getInt(1));
+      }
+    }
+  }
+
+  @Test
+  void archiveMovesOldCompletedTodos() throws Exception {
+    long old = System.currentTimeMillis() - Duration.ofDays(60).toMillis();
+    for (int i = 0; i < 25; i++) {
+      repository.add(Todo.of(0, "Old done " + i, null, null, true, old));
+    }
+    try (Connection conn = pool.getWriteConnection();
+        Statement stmt = conn.createStatement()) {
+      stmt.executeUpdate("UPDATE todos SET completed_at = " + old + " WHERE completed = 1");
+    }
+    int oldPending = repository.add(Todo.of(0, "Old pending", null, null, false, old));
+    // Created long ago but completed just now: not old enough to archive
+    int recentDone = repository.add(Todo.of(0, "Recent done", null, null, false, old));
+    assertTrue(repository.update(recentDone, new TodoUpdate().withCompleted(true)));
+
+    TodoArchiver.ArchiveResult result = new TodoArchiver(repository, 10)
+        .archive(Duration.ofDays(30), TodoArchiver.VacuumMode.INCREMENTAL);
+    assertEquals(25, result.getRows());
+    assertEquals(3, result.getBatches());
+    assertTrue(repository.findById(1).isEmpty());
+    assertTrue(repository.findById(oldPending).isPresent());
+    assertTrue(repository.findById(recentDone).isPresent());
+
+    try (Connection conn = pool.getReadConnection();
+        Statement stmt = conn.createStatement();
+        ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM todos_archive")) {
+      assertTrue(rs.next());
+      assertEquals(25, rs.getInt(1));
+    }
+    // Fresh databases are created in incremental mode, so no rebuild was needed
+    try (Connection conn = pool.getReadConnection();
+        Statement stmt = conn.createStatement();
+        ResultSet rs = stmt.executeQuery("PRAGMA auto_vacuum")) {
+      assertTrue(rs.next());
+      assertEquals(2, rs.getInt(1));
+    }
+  }
+
+  @Test
+  void backupAndRestoreRoundTrip() throws Exception {
+    int id = repository.add(new Todo("Keep me", null, null));
+    TodoBackup backup = new TodoBackup(repository);
+    Path snapshot = tempDir.resolve("snapshot.db");
+    Path stepped = tempDir.resolve("stepped.db");
+    backup.snapshot(snapshot);
+    assertTrue(backup.backup(stepped, 1, 0).getSteps() >= 1);
+
+    for (Path file : new Path[] { snapshot, stepped }) {
+      try (Connection conn = DriverManager.getConnection("jdbc:sqlite:" + file);
+          Statement stmt = conn.createStatement();
+          ResultSet rs = stmt.executeQuery("SELECT title FROM todos WHERE id = " + id)) {
+        assertTrue(rs.next());
+        assertEquals("Keep me", rs.getString(1));
+      }
+    }
+
+    repository.delete(id);
+    backup.restore(stepped);
+    assertEquals("Keep me", repository.findById(id).orElseThrow().getTitle());
+  }
+
+  @Test
+  void changeFeedReportsChangesSinceSequence() throws Exception {
+    int kept = repository.add(new Todo("Kept", null, null));
+    TodoChangeFeed feed = new TodoChangeFeed(pool);
+    long start = feed.currentSequence();
+
+    int added = repository.add(new Todo("Added", null, null));
+    repository.update(kept, new TodoUpdate().withTitle("Kept and renamed"));
+    repository.update(kept, new TodoUpdate().withCompleted(true));
+    repository.delete(added);
+
+    List<TodoChangeFeed.TodoChange> changes = repository.changesSince(start, 100);
+    assertEquals(4, changes.size());
+    assertEquals(TodoChangeFeed.Operation.INSERT, changes.get(0).getOperation());
+    assertNull(changes.get(0).getTodo());
+    assertEquals("Kept and renamed", changes.get(1).getTodo().getTitle());
+    assertEquals(TodoChangeFeed.Operation.DELETE, changes.get(3).getOperation());
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    long next = repository.exportChangesJson(out, start, false);
+    assertEquals(changes.get(3).getSeq(), next);
+    assertEquals("{\"fromSeq\":" + start + ",\"toSeq\":" + next + ",\"upserts\":[{\"id\":" + kept +
+        ",\"title\":\"Kept and renamed\",\"completed\":true,\"createdAt\":\"" +
+        TodoDates.formatTimestamp(repository.findById(kept).orElseThrow().getCreatedAt()) +
+        "\"}],\"deletes\":[" + added + "]}",
+        out.toString(StandardCharsets.UTF_8));
+    assertTrue(repository.changesSince(next, 100).isEmpty());
+  }
+
+  @Test
+  void memoryStoreRecoversLastCheckpoint() throws Exception {
+    Path file = tempDir.resolve("checkpoint.db");
+    String url = TodoMemoryStore.memoryUrl("test-" + tempDir.getFileName());
+    int saved;
+    try (TodoConnectionPool memory = new TodoConnectionPool(url, 1, TodoDbProfile.FAST)) {
+      try (Connection conn = memory.getWriteConnection()) {
+        TodoSchema.create(conn);
+      }
+      TodoRepository store = new TodoRepository(memory);
+      TodoMemoryStore checkpoints = new TodoMemoryStore(store, file);
+      saved = store.add(new Todo("Checkpointed", null, null));
+      assertTrue(checkpoints.checkpoint());
+      assertFalse(checkpoints.checkpoint());
+      // Lost: the pool goes away without a final checkpoint, like a crash
+      store.add(new Todo("After checkpoint", null, null));
+    }
+
+    try (TodoConnectionPool memory = new TodoConnectionPool(url, 1, TodoDbProfile.FAST)) {
+      TodoRepository store = new TodoRepository(memory);
+      assertTrue(new TodoMemoryStore(store, file).load());
+      assertEquals("Checkpointed", store.findById(saved).orElseThrow().getTitle());
+      assertTrue(store.findById(saved + 1).isEmpty());
+    }
+  }
+}